@@ -20,32 +20,39 @@ package com.elevenware.fakeid;
  * #L%
  */
 
+import com.elevenware.fakeid.core.IdGenerator;
+import com.elevenware.fakeid.core.store.RefreshTokenStore;
+import com.elevenware.fakeid.core.users.UserDirectory;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.nimbusds.jose.Algorithm;
-import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.KeyUse;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
 import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.JWTParser;
 import com.nimbusds.jwt.PlainJWT;
+import com.oidc4j.v2.lib.store.ClientStore;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+import com.oidc4j.v2.lib.store.UserStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.Base64;
-import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 public class Configuration {
 
@@ -56,6 +63,38 @@ public class Configuration {
     private Map<String, Object> claims;
     private int port = 8091;
     private JWSAlgorithm signingAlgorithm;
+    private boolean templatedIdTokens;
+    private String signingSecret;
+    private boolean jwtAccessTokens;
+    private int tokenPoolSize;
+    private long tokenPoolMaxAgeSeconds = 30;
+    private long keyRotationSeconds;
+    private long keyOverlapSeconds = 7200;
+    private String keyCacheDirectory;
+    private boolean asyncKeyGeneration;
+    private String grantStoreDirectory;
+    private long grantStoreCapacity = 1 << 20;
+    private String grantJournalDirectory;
+    private long grantJournalCompactionSeconds = 600;
+    private boolean shardedGrantStores;
+    private String storeProvider;
+    private ClientStore clientStore;
+    private UserStore userStore;
+    private PendingGrantStore pendingGrantStore;
+    private IssuedGrantStore issuedGrantStore;
+    private IdGenerator idGenerator;
+    private long refreshTokenTtlSeconds = 86400;
+    private boolean rotateRefreshTokens;
+    private RefreshTokenStore refreshTokenStore;
+    private String usersFile;
+    private String userSelection = "round-robin";
+    private UserDirectory userDirectory;
+    private int syntheticUsers;
+    private long syntheticUserSeed;
+    private Map<String, String> claimTemplates;
+    private boolean filterClaimsByScope;
+    private Map<String, List<String>> scopeClaims;
+    private volatile CompletableFuture<JWKSet> pendingJwks;
 
     public void setIssuer(String issuer) {
         this.issuer = issuer;
@@ -66,6 +105,11 @@ public class Configuration {
     }
 
     public JWKSet getJwks() {
+        CompletableFuture<JWKSet> pending = pendingJwks;
+        if (pending != null) {
+            jwks = pending.join();
+            pendingJwks = null;
+        }
         return jwks;
     }
 
@@ -103,6 +147,295 @@ public class Configuration {
         this.signingAlgorithm = algorithm;
     }
 
+    public String getSigningSecret() {
+        return signingSecret;
+    }
+
+    public void setSigningSecret(String signingSecret) {
+        this.signingSecret = signingSecret;
+    }
+
+    public boolean isJwtAccessTokens() {
+        return jwtAccessTokens;
+    }
+
+    public void setJwtAccessTokens(boolean jwtAccessTokens) {
+        LOG.info("Setting JWT access tokens to {}", jwtAccessTokens);
+        this.jwtAccessTokens = jwtAccessTokens;
+    }
+
+    public int getTokenPoolSize() {
+        return tokenPoolSize;
+    }
+
+    public void setTokenPoolSize(int tokenPoolSize) {
+        LOG.info("Setting token pool size to {}", tokenPoolSize);
+        this.tokenPoolSize = tokenPoolSize;
+    }
+
+    public long getTokenPoolMaxAgeSeconds() {
+        return tokenPoolMaxAgeSeconds;
+    }
+
+    public void setTokenPoolMaxAgeSeconds(long tokenPoolMaxAgeSeconds) {
+        this.tokenPoolMaxAgeSeconds = tokenPoolMaxAgeSeconds;
+    }
+
+    public long getKeyRotationSeconds() {
+        return keyRotationSeconds;
+    }
+
+    public void setKeyRotationSeconds(long keyRotationSeconds) {
+        LOG.info("Setting signing key rotation interval to {}s", keyRotationSeconds);
+        this.keyRotationSeconds = keyRotationSeconds;
+    }
+
+    public long getKeyOverlapSeconds() {
+        return keyOverlapSeconds;
+    }
+
+    public void setKeyOverlapSeconds(long keyOverlapSeconds) {
+        this.keyOverlapSeconds = keyOverlapSeconds;
+    }
+
+    public String getKeyCacheDirectory() {
+        return keyCacheDirectory;
+    }
+
+    public void setKeyCacheDirectory(String keyCacheDirectory) {
+        LOG.info("Setting key cache directory to {}", keyCacheDirectory);
+        this.keyCacheDirectory = keyCacheDirectory;
+    }
+
+    public boolean isAsyncKeyGeneration() {
+        return asyncKeyGeneration;
+    }
+
+    public void setAsyncKeyGeneration(boolean asyncKeyGeneration) {
+        LOG.info("Setting async key generation to {}", asyncKeyGeneration);
+        this.asyncKeyGeneration = asyncKeyGeneration;
+    }
+
+    public String getGrantStoreDirectory() {
+        return grantStoreDirectory;
+    }
+
+    public void setGrantStoreDirectory(String grantStoreDirectory) {
+        LOG.info("Setting shared grant store directory to {}", grantStoreDirectory);
+        this.grantStoreDirectory = grantStoreDirectory;
+    }
+
+    public long getGrantStoreCapacity() {
+        return grantStoreCapacity;
+    }
+
+    public void setGrantStoreCapacity(long grantStoreCapacity) {
+        LOG.info("Setting shared grant store capacity to {}", grantStoreCapacity);
+        this.grantStoreCapacity = grantStoreCapacity;
+    }
+
+    public String getGrantJournalDirectory() {
+        return grantJournalDirectory;
+    }
+
+    public void setGrantJournalDirectory(String grantJournalDirectory) {
+        LOG.info("Setting grant journal directory to {}", grantJournalDirectory);
+        this.grantJournalDirectory = grantJournalDirectory;
+    }
+
+    public long getGrantJournalCompactionSeconds() {
+        return grantJournalCompactionSeconds;
+    }
+
+    public void setGrantJournalCompactionSeconds(long grantJournalCompactionSeconds) {
+        this.grantJournalCompactionSeconds = grantJournalCompactionSeconds;
+    }
+
+    public boolean isShardedGrantStores() {
+        return shardedGrantStores;
+    }
+
+    public void setShardedGrantStores(boolean shardedGrantStores) {
+        LOG.info("Setting sharded grant stores to {}", shardedGrantStores);
+        this.shardedGrantStores = shardedGrantStores;
+    }
+
+    public String getStoreProvider() {
+        return storeProvider;
+    }
+
+    public void setStoreProvider(String storeProvider) {
+        LOG.info("Setting store provider to {}", storeProvider);
+        this.storeProvider = storeProvider;
+    }
+
+    @JsonIgnore
+    public ClientStore getClientStore() {
+        return clientStore;
+    }
+
+    @JsonIgnore
+    public void setClientStore(ClientStore clientStore) {
+        LOG.info("Setting client store to {}", clientStore.getClass().getName());
+        this.clientStore = clientStore;
+    }
+
+    @JsonIgnore
+    public UserStore getUserStore() {
+        return userStore;
+    }
+
+    @JsonIgnore
+    public void setUserStore(UserStore userStore) {
+        LOG.info("Setting user store to {}", userStore.getClass().getName());
+        this.userStore = userStore;
+    }
+
+    @JsonIgnore
+    public PendingGrantStore getPendingGrantStore() {
+        return pendingGrantStore;
+    }
+
+    @JsonIgnore
+    public void setPendingGrantStore(PendingGrantStore pendingGrantStore) {
+        LOG.info("Setting pending grant store to {}", pendingGrantStore.getClass().getName());
+        this.pendingGrantStore = pendingGrantStore;
+    }
+
+    @JsonIgnore
+    public IssuedGrantStore getIssuedGrantStore() {
+        return issuedGrantStore;
+    }
+
+    @JsonIgnore
+    public void setIssuedGrantStore(IssuedGrantStore issuedGrantStore) {
+        LOG.info("Setting issued grant store to {}", issuedGrantStore.getClass().getName());
+        this.issuedGrantStore = issuedGrantStore;
+    }
+
+    @JsonIgnore
+    public IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    @JsonIgnore
+    public void setIdGenerator(IdGenerator idGenerator) {
+        LOG.info("Setting id generator to {}", idGenerator.getClass().getName());
+        this.idGenerator = idGenerator;
+    }
+
+    public long getRefreshTokenTtlSeconds() {
+        return refreshTokenTtlSeconds;
+    }
+
+    public void setRefreshTokenTtlSeconds(long refreshTokenTtlSeconds) {
+        LOG.info("Setting refresh token TTL to {} seconds", refreshTokenTtlSeconds);
+        this.refreshTokenTtlSeconds = refreshTokenTtlSeconds;
+    }
+
+    public boolean isRotateRefreshTokens() {
+        return rotateRefreshTokens;
+    }
+
+    public void setRotateRefreshTokens(boolean rotateRefreshTokens) {
+        LOG.info("Setting rotate refresh tokens to {}", rotateRefreshTokens);
+        this.rotateRefreshTokens = rotateRefreshTokens;
+    }
+
+    @JsonIgnore
+    public RefreshTokenStore getRefreshTokenStore() {
+        return refreshTokenStore;
+    }
+
+    @JsonIgnore
+    public void setRefreshTokenStore(RefreshTokenStore refreshTokenStore) {
+        LOG.info("Setting refresh token store to {}", refreshTokenStore.getClass().getName());
+        this.refreshTokenStore = refreshTokenStore;
+    }
+
+    public String getUsersFile() {
+        return usersFile;
+    }
+
+    public void setUsersFile(String usersFile) {
+        LOG.info("Setting users file to {}", usersFile);
+        this.usersFile = usersFile;
+    }
+
+    public String getUserSelection() {
+        return userSelection;
+    }
+
+    public void setUserSelection(String userSelection) {
+        LOG.info("Setting user selection to {}", userSelection);
+        this.userSelection = userSelection;
+    }
+
+    @JsonIgnore
+    public UserDirectory getUserDirectory() {
+        return userDirectory;
+    }
+
+    @JsonIgnore
+    public void setUserDirectory(UserDirectory userDirectory) {
+        LOG.info("Setting user directory to {}", userDirectory.getClass().getName());
+        this.userDirectory = userDirectory;
+    }
+
+    public int getSyntheticUsers() {
+        return syntheticUsers;
+    }
+
+    public void setSyntheticUsers(int syntheticUsers) {
+        LOG.info("Setting synthetic users to {}", syntheticUsers);
+        this.syntheticUsers = syntheticUsers;
+    }
+
+    public long getSyntheticUserSeed() {
+        return syntheticUserSeed;
+    }
+
+    public void setSyntheticUserSeed(long syntheticUserSeed) {
+        LOG.info("Setting synthetic user seed to {}", syntheticUserSeed);
+        this.syntheticUserSeed = syntheticUserSeed;
+    }
+
+    public Map<String, String> getClaimTemplates() {
+        return claimTemplates;
+    }
+
+    public void setClaimTemplates(Map<String, String> claimTemplates) {
+        LOG.info("Setting claim templates to {}", claimTemplates);
+        this.claimTemplates = claimTemplates;
+    }
+
+    public boolean isFilterClaimsByScope() {
+        return filterClaimsByScope;
+    }
+
+    public void setFilterClaimsByScope(boolean filterClaimsByScope) {
+        LOG.info("Setting filter claims by scope to {}", filterClaimsByScope);
+        this.filterClaimsByScope = filterClaimsByScope;
+    }
+
+    public Map<String, List<String>> getScopeClaims() {
+        return scopeClaims;
+    }
+
+    public void setScopeClaims(Map<String, List<String>> scopeClaims) {
+        LOG.info("Setting scope claims to {}", scopeClaims);
+        this.scopeClaims = scopeClaims;
+    }
+
+    public boolean isTemplatedIdTokens() {
+        return templatedIdTokens;
+    }
+
+    public void setTemplatedIdTokens(boolean templatedIdTokens) {
+        LOG.info("Setting templated id tokens to {}", templatedIdTokens);
+        this.templatedIdTokens = templatedIdTokens;
+    }
+
     public static Configuration loadFromFile(String filePath) {
         LOG.info("Loading configuration from file {}", filePath);
         Configuration configuration;
@@ -120,6 +453,12 @@ public class Configuration {
         setDefaultClaims(configuration);
         setDefaultSigningAlgorithm(configuration);
         setDefaultJwks(configuration);
+        setDefaultGrantStoreDirectory(configuration);
+        setDefaultGrantJournalDirectory(configuration);
+        setDefaultStoreProvider(configuration);
+        setDefaultUsersFile(configuration);
+        setDefaultSyntheticUsers(configuration);
+        setDefaultFilterClaimsByScope(configuration);
         return configuration;
     }
 
@@ -149,6 +488,12 @@ public class Configuration {
         setDefaultIssuer(configuration);
         setDefaultClaims(configuration);
         setDefaultJwks(configuration);
+        setDefaultGrantStoreDirectory(configuration);
+        setDefaultGrantJournalDirectory(configuration);
+        setDefaultStoreProvider(configuration);
+        setDefaultUsersFile(configuration);
+        setDefaultSyntheticUsers(configuration);
+        setDefaultFilterClaimsByScope(configuration);
         return configuration;
     }
 
@@ -157,40 +502,125 @@ public class Configuration {
     }
 
     private static void setDefaultJwks(Configuration configuration) {
-        if(configuration.getJwks() != null) {
+        if(configuration.jwks != null || configuration.pendingJwks != null) {
+            return;
+        }
+        JWSAlgorithm algorithm = configuration.getSigningAlgorithm();
+        if(JWSAlgorithm.Family.HMAC_SHA.contains(algorithm)) {
+            setDefaultSigningSecret(configuration);
+            configuration.setJwks(new JWKSet(SigningKeys.fromSecret(configuration.getSigningSecret(), algorithm, "signingKey")));
             return;
         }
         String setSigningKey = System.getenv("FAKEID_SIGNING_KEY");
         if(setSigningKey != null) {
-            try {
-                setSigningKey = new String(Base64.getDecoder().decode(setSigningKey));
-                RSAKey key = RSAKey.parseFromPEMEncodedObjects(setSigningKey).toRSAKey();
-                key = new RSAKey.Builder(key.toRSAPublicKey())
-                        .privateKey(key.toRSAPrivateKey())
-                        .algorithm(configuration.getSigningAlgorithm())
-                        .keyID("signingKey")
-                        .keyUse(KeyUse.SIGNATURE)
-                        .build();
-                configuration.setJwks(new JWKSet(key));
-                return;
-            } catch (JOSEException e) {
-                throw new RuntimeException(e);
+            setSigningKey = new String(Base64.getDecoder().decode(setSigningKey));
+            JWK key = SigningKeys.fromPem(setSigningKey, configuration.getSigningAlgorithm(), "signingKey");
+            configuration.setJwks(new JWKSet(key));
+            return;
+        }
+        if(configuration.getKeyCacheDirectory() == null) {
+            String setKeyCacheDirectory = System.getenv("FAKEID_KEY_CACHE_DIR");
+            if(setKeyCacheDirectory != null) {
+                configuration.setKeyCacheDirectory(setKeyCacheDirectory);
             }
         }
-        try {
-            RSAKey jwk = new RSAKeyGenerator(2048)
-                    .keyUse(KeyUse.SIGNATURE)
-                    .keyID("signingKey")
-                    .issueTime(new Date())
-                    .algorithm(configuration.getSigningAlgorithm())
-                    .generate();
-            JWKSet jwks = new JWKSet(jwk);
-            configuration.setJwks(jwks);
-        } catch (JOSEException e) {
-            throw new RuntimeException(e);
+        if(!configuration.isAsyncKeyGeneration() && "true".equalsIgnoreCase(System.getenv("FAKEID_ASYNC_KEY_GENERATION"))) {
+            configuration.setAsyncKeyGeneration(true);
+        }
+        String keyCacheDirectory = configuration.getKeyCacheDirectory();
+        Supplier<JWKSet> generate = () -> new JWKSet(keyCacheDirectory == null
+                ? SigningKeys.generate(algorithm, "signingKey")
+                : SigningKeyCache.loadOrGenerate(Path.of(keyCacheDirectory), algorithm, "signingKey"));
+        if(configuration.isAsyncKeyGeneration()) {
+            LOG.info("Generating {} signing key in the background", algorithm);
+            configuration.pendingJwks = CompletableFuture.supplyAsync(generate);
+        } else {
+            configuration.setJwks(generate.get());
+        }
+    }
+
+    private static void setDefaultGrantStoreDirectory(Configuration configuration) {
+        if(configuration.getGrantStoreDirectory() != null) {
+            return;
+        }
+        String setGrantStoreDirectory = System.getenv("FAKEID_GRANT_STORE_DIR");
+        if(setGrantStoreDirectory != null) {
+            configuration.setGrantStoreDirectory(setGrantStoreDirectory);
         }
     }
 
+    private static void setDefaultGrantJournalDirectory(Configuration configuration) {
+        if(configuration.getGrantJournalDirectory() != null) {
+            return;
+        }
+        String setGrantJournalDirectory = System.getenv("FAKEID_GRANT_JOURNAL_DIR");
+        if(setGrantJournalDirectory != null) {
+            configuration.setGrantJournalDirectory(setGrantJournalDirectory);
+        }
+    }
+
+    private static void setDefaultStoreProvider(Configuration configuration) {
+        if(configuration.getStoreProvider() != null) {
+            return;
+        }
+        String setStoreProvider = System.getenv("FAKEID_STORE_PROVIDER");
+        if(setStoreProvider != null) {
+            configuration.setStoreProvider(setStoreProvider);
+        }
+    }
+
+    private static void setDefaultUsersFile(Configuration configuration) {
+        if(configuration.getUsersFile() != null) {
+            return;
+        }
+        String setUsersFile = System.getenv("FAKEID_USERS_FILE");
+        if(setUsersFile != null) {
+            configuration.setUsersFile(setUsersFile);
+        }
+        String setUserSelection = System.getenv("FAKEID_USER_SELECTION");
+        if(setUserSelection != null) {
+            configuration.setUserSelection(setUserSelection);
+        }
+    }
+
+    private static void setDefaultSyntheticUsers(Configuration configuration) {
+        if(configuration.getSyntheticUsers() > 0) {
+            return;
+        }
+        String setSyntheticUsers = System.getenv("FAKEID_SYNTHETIC_USERS");
+        if(setSyntheticUsers != null) {
+            configuration.setSyntheticUsers(Integer.parseInt(setSyntheticUsers));
+        }
+        String setSyntheticUserSeed = System.getenv("FAKEID_SYNTHETIC_USER_SEED");
+        if(setSyntheticUserSeed != null) {
+            configuration.setSyntheticUserSeed(Long.parseLong(setSyntheticUserSeed));
+        }
+    }
+
+    private static void setDefaultFilterClaimsByScope(Configuration configuration) {
+        if(configuration.isFilterClaimsByScope()) {
+            return;
+        }
+        String setFilterClaimsByScope = System.getenv("FAKEID_FILTER_CLAIMS_BY_SCOPE");
+        if(setFilterClaimsByScope != null) {
+            configuration.setFilterClaimsByScope(Boolean.parseBoolean(setFilterClaimsByScope));
+        }
+    }
+
+    private static void setDefaultSigningSecret(Configuration configuration) {
+        if(configuration.getSigningSecret() != null) {
+            return;
+        }
+        String setSigningSecret = System.getenv("FAKEID_SIGNING_SECRET");
+        if(setSigningSecret != null) {
+            configuration.setSigningSecret(setSigningSecret);
+            return;
+        }
+        String secret = SigningKeys.randomSecret(configuration.getSigningAlgorithm());
+        LOG.info("No signing secret set, generated a {} secret", configuration.getSigningAlgorithm());
+        configuration.setSigningSecret(secret);
+    }
+
     private static void setDefaultClaims(Configuration configuration) {
         if(configuration.getClaims() != null) {
             return;
@@ -257,6 +687,37 @@ public class Configuration {
         private JWKSet jwks;
         private Map<String, Object> claims;
         private JWSAlgorithm algorithm = JWSAlgorithm.RS256;
+        private boolean templatedIdTokens;
+        private String signingSecret;
+        private boolean jwtAccessTokens;
+        private int tokenPoolSize;
+        private long tokenPoolMaxAgeSeconds = 30;
+        private long keyRotationSeconds;
+        private long keyOverlapSeconds = 7200;
+        private String keyCacheDirectory;
+        private boolean asyncKeyGeneration;
+        private String grantStoreDirectory;
+        private long grantStoreCapacity = 1 << 20;
+        private String grantJournalDirectory;
+        private long grantJournalCompactionSeconds = 600;
+        private boolean shardedGrantStores;
+        private String storeProvider;
+        private ClientStore clientStore;
+        private UserStore userStore;
+        private PendingGrantStore pendingGrantStore;
+        private IssuedGrantStore issuedGrantStore;
+        private IdGenerator idGenerator;
+        private long refreshTokenTtlSeconds = 86400;
+        private boolean rotateRefreshTokens;
+        private RefreshTokenStore refreshTokenStore;
+        private String usersFile;
+        private String userSelection;
+        private UserDirectory userDirectory;
+        private int syntheticUsers;
+        private long syntheticUserSeed;
+        private Map<String, String> claimTemplates;
+        private boolean filterClaimsByScope;
+        private Map<String, List<String>> scopeClaims;
 
         public Configuration build() {
             if(built) {
@@ -275,6 +736,83 @@ public class Configuration {
             }
 
             configuration.setSigningAlgorithm(algorithm);
+            configuration.setTemplatedIdTokens(templatedIdTokens);
+            configuration.setSigningSecret(signingSecret);
+            configuration.setJwtAccessTokens(jwtAccessTokens);
+            configuration.setTokenPoolSize(tokenPoolSize);
+            configuration.setTokenPoolMaxAgeSeconds(tokenPoolMaxAgeSeconds);
+            configuration.setKeyRotationSeconds(keyRotationSeconds);
+            configuration.setKeyOverlapSeconds(keyOverlapSeconds);
+            if(keyCacheDirectory != null) {
+                configuration.setKeyCacheDirectory(keyCacheDirectory);
+            }
+            configuration.setAsyncKeyGeneration(asyncKeyGeneration);
+            configuration.setGrantStoreCapacity(grantStoreCapacity);
+            if(grantStoreDirectory != null) {
+                configuration.setGrantStoreDirectory(grantStoreDirectory);
+            } else {
+                setDefaultGrantStoreDirectory(configuration);
+            }
+            configuration.setGrantJournalCompactionSeconds(grantJournalCompactionSeconds);
+            configuration.setShardedGrantStores(shardedGrantStores);
+            if(grantJournalDirectory != null) {
+                configuration.setGrantJournalDirectory(grantJournalDirectory);
+            } else {
+                setDefaultGrantJournalDirectory(configuration);
+            }
+            if(storeProvider != null) {
+                configuration.setStoreProvider(storeProvider);
+            } else {
+                setDefaultStoreProvider(configuration);
+            }
+            if(clientStore != null) {
+                configuration.setClientStore(clientStore);
+            }
+            if(userStore != null) {
+                configuration.setUserStore(userStore);
+            }
+            if(pendingGrantStore != null) {
+                configuration.setPendingGrantStore(pendingGrantStore);
+            }
+            if(issuedGrantStore != null) {
+                configuration.setIssuedGrantStore(issuedGrantStore);
+            }
+            if(idGenerator != null) {
+                configuration.setIdGenerator(idGenerator);
+            }
+            configuration.setRefreshTokenTtlSeconds(refreshTokenTtlSeconds);
+            configuration.setRotateRefreshTokens(rotateRefreshTokens);
+            if(refreshTokenStore != null) {
+                configuration.setRefreshTokenStore(refreshTokenStore);
+            }
+            if(usersFile != null) {
+                configuration.setUsersFile(usersFile);
+            } else {
+                setDefaultUsersFile(configuration);
+            }
+            if(userSelection != null) {
+                configuration.setUserSelection(userSelection);
+            }
+            if(userDirectory != null) {
+                configuration.setUserDirectory(userDirectory);
+            }
+            if(syntheticUsers > 0) {
+                configuration.setSyntheticUsers(syntheticUsers);
+                configuration.setSyntheticUserSeed(syntheticUserSeed);
+            } else {
+                setDefaultSyntheticUsers(configuration);
+            }
+            if(claimTemplates != null) {
+                configuration.setClaimTemplates(claimTemplates);
+            }
+            if(filterClaimsByScope) {
+                configuration.setFilterClaimsByScope(true);
+            } else {
+                setDefaultFilterClaimsByScope(configuration);
+            }
+            if(scopeClaims != null) {
+                configuration.setScopeClaims(scopeClaims);
+            }
             if( port != -1) {
                 configuration.setPort(port);
             }
@@ -317,6 +855,161 @@ public class Configuration {
             return this;
         }
 
+        public Builder signingSecret(String signingSecret) {
+            this.signingSecret = signingSecret;
+            return this;
+        }
+
+        public Builder jwtAccessTokens(boolean jwtAccessTokens) {
+            this.jwtAccessTokens = jwtAccessTokens;
+            return this;
+        }
+
+        public Builder tokenPoolSize(int tokenPoolSize) {
+            this.tokenPoolSize = tokenPoolSize;
+            return this;
+        }
+
+        public Builder tokenPoolMaxAgeSeconds(long tokenPoolMaxAgeSeconds) {
+            this.tokenPoolMaxAgeSeconds = tokenPoolMaxAgeSeconds;
+            return this;
+        }
+
+        public Builder keyRotationSeconds(long keyRotationSeconds) {
+            this.keyRotationSeconds = keyRotationSeconds;
+            return this;
+        }
+
+        public Builder keyOverlapSeconds(long keyOverlapSeconds) {
+            this.keyOverlapSeconds = keyOverlapSeconds;
+            return this;
+        }
+
+        public Builder keyCacheDirectory(Path keyCacheDirectory) {
+            this.keyCacheDirectory = keyCacheDirectory.toString();
+            return this;
+        }
+
+        public Builder asyncKeyGeneration(boolean asyncKeyGeneration) {
+            this.asyncKeyGeneration = asyncKeyGeneration;
+            return this;
+        }
+
+        public Builder grantStoreDirectory(Path grantStoreDirectory) {
+            this.grantStoreDirectory = grantStoreDirectory.toString();
+            return this;
+        }
+
+        public Builder grantStoreCapacity(long grantStoreCapacity) {
+            this.grantStoreCapacity = grantStoreCapacity;
+            return this;
+        }
+
+        public Builder grantJournalDirectory(Path grantJournalDirectory) {
+            this.grantJournalDirectory = grantJournalDirectory.toString();
+            return this;
+        }
+
+        public Builder grantJournalCompactionSeconds(long grantJournalCompactionSeconds) {
+            this.grantJournalCompactionSeconds = grantJournalCompactionSeconds;
+            return this;
+        }
+
+        public Builder shardedGrantStores(boolean shardedGrantStores) {
+            this.shardedGrantStores = shardedGrantStores;
+            return this;
+        }
+
+        public Builder storeProvider(String storeProvider) {
+            this.storeProvider = storeProvider;
+            return this;
+        }
+
+        public Builder clientStore(ClientStore clientStore) {
+            this.clientStore = clientStore;
+            return this;
+        }
+
+        public Builder userStore(UserStore userStore) {
+            this.userStore = userStore;
+            return this;
+        }
+
+        public Builder pendingGrantStore(PendingGrantStore pendingGrantStore) {
+            this.pendingGrantStore = pendingGrantStore;
+            return this;
+        }
+
+        public Builder issuedGrantStore(IssuedGrantStore issuedGrantStore) {
+            this.issuedGrantStore = issuedGrantStore;
+            return this;
+        }
+
+        public Builder idGenerator(IdGenerator idGenerator) {
+            this.idGenerator = idGenerator;
+            return this;
+        }
+
+        public Builder refreshTokenTtlSeconds(long refreshTokenTtlSeconds) {
+            this.refreshTokenTtlSeconds = refreshTokenTtlSeconds;
+            return this;
+        }
+
+        public Builder rotateRefreshTokens(boolean rotateRefreshTokens) {
+            this.rotateRefreshTokens = rotateRefreshTokens;
+            return this;
+        }
+
+        public Builder refreshTokenStore(RefreshTokenStore refreshTokenStore) {
+            this.refreshTokenStore = refreshTokenStore;
+            return this;
+        }
+
+        public Builder usersFile(Path usersFile) {
+            this.usersFile = usersFile.toString();
+            return this;
+        }
+
+        public Builder userSelection(String userSelection) {
+            this.userSelection = userSelection;
+            return this;
+        }
+
+        public Builder userDirectory(UserDirectory userDirectory) {
+            this.userDirectory = userDirectory;
+            return this;
+        }
+
+        public Builder syntheticUsers(int syntheticUsers) {
+            this.syntheticUsers = syntheticUsers;
+            return this;
+        }
+
+        public Builder syntheticUserSeed(long syntheticUserSeed) {
+            this.syntheticUserSeed = syntheticUserSeed;
+            return this;
+        }
+
+        public Builder claimTemplates(Map<String, String> claimTemplates) {
+            this.claimTemplates = claimTemplates;
+            return this;
+        }
+
+        public Builder filterClaimsByScope(boolean filterClaimsByScope) {
+            this.filterClaimsByScope = filterClaimsByScope;
+            return this;
+        }
+
+        public Builder scopeClaims(Map<String, List<String>> scopeClaims) {
+            this.scopeClaims = scopeClaims;
+            return this;
+        }
+
+        public Builder templatedIdTokens(boolean templatedIdTokens) {
+            this.templatedIdTokens = templatedIdTokens;
+            return this;
+        }
+
         public Builder port(int port) {
             this.port = port;
             return this;
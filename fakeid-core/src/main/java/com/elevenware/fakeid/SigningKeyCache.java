@@ -0,0 +1,107 @@
+package com.elevenware.fakeid;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.text.ParseException;
+
+/**
+ * Keeps generated signing keys in a directory so that the next start can reuse them
+ * instead of paying for key generation again. There is one file per algorithm, and a
+ * file that doesn't hold a usable private key for that algorithm is replaced.
+ */
+final class SigningKeyCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SigningKeyCache.class);
+
+    private SigningKeyCache() {
+    }
+
+    static JWK loadOrGenerate(Path directory, JWSAlgorithm algorithm, String keyId) {
+        Path file = directory.resolve("signing-key-" + algorithm.getName() + ".json");
+        JWK cached = load(file, algorithm, keyId);
+        if (cached != null) {
+            LOG.info("Using cached {} signing key from {}", algorithm, file);
+            return cached;
+        }
+        JWK generated = SigningKeys.generate(algorithm, keyId);
+        try {
+            store(directory, file, generated);
+            LOG.info("Cached generated {} signing key in {}", algorithm, file);
+        } catch (IOException e) {
+            LOG.warn("Failed to cache signing key in {}", file, e);
+        }
+        return generated;
+    }
+
+    private static JWK load(Path file, JWSAlgorithm algorithm, String keyId) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            JWK key = JWKSet.parse(Files.readString(file, StandardCharsets.UTF_8)).getKeyByKeyId(keyId);
+            if (key == null
+                    || !key.isPrivate()
+                    || !algorithm.equals(key.getAlgorithm())
+                    || !KeyType.forAlgorithm(algorithm).equals(key.getKeyType())) {
+                LOG.warn("Cached signing key in {} is not a {} private key, generating a new one", file, algorithm);
+                return null;
+            }
+            return key;
+        } catch (IOException | ParseException e) {
+            LOG.warn("Cached signing key in {} is unreadable, generating a new one", file, e);
+            return null;
+        }
+    }
+
+    private static void store(Path directory, Path file, JWK key) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, ".signing-key", ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // not a POSIX file system; the directory's own permissions apply
+            }
+            Files.writeString(temp, new JWKSet(key).toString(false), StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.elevenware.fakeid;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.Base64URL;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.bouncycastle.openssl.PEMParser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+
+public final class SigningKeys {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private SigningKeys() {
+    }
+
+    public static JWK generate(JWSAlgorithm algorithm, String keyId) {
+        try {
+            if (JWSAlgorithm.Family.RSA.contains(algorithm)) {
+                return new RSAKeyGenerator(2048)
+                        .keyUse(KeyUse.SIGNATURE)
+                        .keyID(keyId)
+                        .issueTime(new Date())
+                        .algorithm(algorithm)
+                        .generate();
+            }
+            if (JWSAlgorithm.Family.EC.contains(algorithm)) {
+                return new ECKeyGenerator(Curve.forJWSAlgorithm(algorithm).iterator().next())
+                        .keyUse(KeyUse.SIGNATURE)
+                        .keyID(keyId)
+                        .issueTime(new Date())
+                        .algorithm(algorithm)
+                        .generate();
+            }
+            if (JWSAlgorithm.EdDSA.equals(algorithm) || JWSAlgorithm.Ed25519.equals(algorithm)) {
+                return new OctetKeyPairGenerator(Curve.Ed25519)
+                        .keyUse(KeyUse.SIGNATURE)
+                        .keyID(keyId)
+                        .issueTime(new Date())
+                        .algorithm(algorithm)
+                        .generate();
+            }
+            if (JWSAlgorithm.Family.HMAC_SHA.contains(algorithm)) {
+                return fromSecret(randomSecret(algorithm), algorithm, keyId);
+            }
+        } catch (JOSEException e) {
+            throw new RuntimeException(e);
+        }
+        throw new ConfigurationException("Unsupported signing algorithm: " + algorithm);
+    }
+
+    public static String randomSecret(JWSAlgorithm algorithm) {
+        byte[] bytes = new byte[minimumSecretLength(algorithm)];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public static OctetSequenceKey fromSecret(String secret, JWSAlgorithm algorithm, String keyId) {
+        byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+        int minimum = minimumSecretLength(algorithm);
+        if (bytes.length < minimum) {
+            throw new ConfigurationException(String.format(
+                    "Signing secret for %s must be at least %d bytes", algorithm, minimum));
+        }
+        return new OctetSequenceKey.Builder(bytes)
+                .keyUse(KeyUse.SIGNATURE)
+                .keyID(keyId)
+                .issueTime(new Date())
+                .algorithm(algorithm)
+                .build();
+    }
+
+    private static int minimumSecretLength(JWSAlgorithm algorithm) {
+        if (JWSAlgorithm.HS384.equals(algorithm)) {
+            return 48;
+        }
+        if (JWSAlgorithm.HS512.equals(algorithm)) {
+            return 64;
+        }
+        return 32;
+    }
+
+    public static JWK fromPem(String pem, JWSAlgorithm algorithm, String keyId) {
+        OctetKeyPair ed25519 = ed25519FromPem(pem, algorithm, keyId);
+        if (ed25519 != null) {
+            return ed25519;
+        }
+        try {
+            JWK parsed = JWK.parseFromPEMEncodedObjects(pem);
+            if (parsed instanceof RSAKey) {
+                RSAKey key = parsed.toRSAKey();
+                return new RSAKey.Builder(key.toRSAPublicKey())
+                        .privateKey(key.toRSAPrivateKey())
+                        .algorithm(algorithm)
+                        .keyID(keyId)
+                        .keyUse(KeyUse.SIGNATURE)
+                        .build();
+            }
+            if (parsed instanceof ECKey) {
+                ECKey key = parsed.toECKey();
+                return new ECKey.Builder(key.getCurve(), key.toECPublicKey())
+                        .privateKey(key.toECPrivateKey())
+                        .algorithm(algorithm)
+                        .keyID(keyId)
+                        .keyUse(KeyUse.SIGNATURE)
+                        .build();
+            }
+        } catch (JOSEException e) {
+            throw new RuntimeException(e);
+        }
+        throw new ConfigurationException("Unsupported signing key type in PEM");
+    }
+
+    /**
+     * Nimbus only parses RSA and EC keys from PEM, so an Ed25519 PKCS#8 private key is read
+     * here and its public half derived from the seed. Returns null for any other PEM.
+     */
+    private static OctetKeyPair ed25519FromPem(String pem, JWSAlgorithm algorithm, String keyId) {
+        try (PEMParser parser = new PEMParser(new StringReader(pem))) {
+            Object object = parser.readObject();
+            if (!(object instanceof PrivateKeyInfo)) {
+                return null;
+            }
+            PrivateKeyInfo info = (PrivateKeyInfo) object;
+            if (!EdECObjectIdentifiers.id_Ed25519.equals(info.getPrivateKeyAlgorithm().getAlgorithm())) {
+                return null;
+            }
+            byte[] seed = ASN1OctetString.getInstance(info.parsePrivateKey()).getOctets();
+            byte[] publicKey = new Ed25519PrivateKeyParameters(seed, 0).generatePublicKey().getEncoded();
+            return new OctetKeyPair.Builder(Curve.Ed25519, Base64URL.encode(publicKey))
+                    .d(Base64URL.encode(seed))
+                    .algorithm(algorithm)
+                    .keyID(keyId)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .build();
+        } catch (IOException e) {
+            throw new ConfigurationException("Signing key PEM can't be read: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.ConfigurationException;
+import com.nimbusds.jose.util.JSONStringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Claims whose values are worked out for each token from templates in the
+ * configuration, such as {@code "tenant": "tenant-${client_id}"}. A template is text
+ * with {@code ${name}} placeholders for:
+ * <ul>
+ *     <li>{@code sub} and {@code client_id}, of the token being minted</li>
+ *     <li>{@code auth_time}, when the user signed in, and {@code iat}, now, both in
+ *     epoch seconds</li>
+ *     <li>{@code random}, a new random identifier each time</li>
+ *     <li>{@code counter}, which counts up from 1 for each token that has the claim</li>
+ * </ul>
+ * A template that is just {@code ${auth_time}}, {@code ${iat}} or {@code ${counter}}
+ * gives a number; anything else gives a string. Templates are parsed once, when
+ * Fake ID starts, into evaluators, so a token pays only for the values themselves.
+ * The claims Fake ID sets itself, {@code iss}, {@code sub}, {@code aud}, {@code iat},
+ * {@code exp} and {@code nonce}, can't be templated.
+ * Instances are immutable and thread-safe.
+ */
+public final class ClaimTemplates {
+
+    public static final ClaimTemplates NONE = new ClaimTemplates(new String[0], new String[0], new Evaluator[0]);
+
+    private static final Set<String> NUMERIC = Set.of("auth_time", "iat", "counter");
+    private static final Set<String> RESERVED = Set.of("iss", "sub", "aud", "iat", "exp", "nonce");
+
+    private final String[] names;
+    private final String[] jsonPrefixes;
+    private final Evaluator[] evaluators;
+
+    private ClaimTemplates(String[] names, String[] jsonPrefixes, Evaluator[] evaluators) {
+        this.names = names;
+        this.jsonPrefixes = jsonPrefixes;
+        this.evaluators = evaluators;
+    }
+
+    /**
+     * Compiles claim templates, keyed by claim name.
+     *
+     * @param ids supplies the values for {@code ${random}}
+     * @throws ConfigurationException if a template is malformed or names an unknown
+     *                                placeholder
+     */
+    public static ClaimTemplates compile(Map<String, String> templates, IdGenerator ids) {
+        if (templates == null || templates.isEmpty()) {
+            return NONE;
+        }
+        int size = templates.size();
+        String[] names = new String[size];
+        String[] jsonPrefixes = new String[size];
+        Evaluator[] evaluators = new Evaluator[size];
+        int i = 0;
+        for (Map.Entry<String, String> template : templates.entrySet()) {
+            if (RESERVED.contains(template.getKey())) {
+                throw new ConfigurationException("Claim " + template.getKey() + " can't be templated");
+            }
+            names[i] = template.getKey();
+            jsonPrefixes[i] = "," + JSONStringUtils.toJSONString(template.getKey()) + ":";
+            evaluators[i] = compile(template.getKey(), template.getValue(), ids);
+            i++;
+        }
+        return new ClaimTemplates(names, jsonPrefixes, evaluators);
+    }
+
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    public Set<String> names() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(List.of(names)));
+    }
+
+    /**
+     * Works out every templated claim for one token and hands each to {@code sink}.
+     */
+    public void evaluate(Context context, BiConsumer<String, Object> sink) {
+        for (int i = 0; i < names.length; i++) {
+            sink.accept(names[i], evaluators[i].evaluate(context));
+        }
+    }
+
+    /**
+     * Works out every templated claim for one token and appends each to a JSON object
+     * being written, as {@code ,"name":value}.
+     */
+    void appendJson(Context context, StringBuilder json) {
+        for (int i = 0; i < names.length; i++) {
+            json.append(jsonPrefixes[i]);
+            Object value = evaluators[i].evaluate(context);
+            if (value == null) {
+                json.append("null");
+            } else if (value instanceof Long) {
+                json.append((long) (Long) value);
+            } else {
+                json.append(JSONStringUtils.toJSONString(value.toString()));
+            }
+        }
+    }
+
+    /**
+     * What a token's templated claims are worked out from.
+     *
+     * @param authTime when the user signed in, in epoch seconds
+     * @param issuedAt when the token is minted, in epoch seconds
+     */
+    public record Context(String subject, String clientId, long authTime, long issuedAt) {
+    }
+
+    private interface Evaluator {
+        Object evaluate(Context context);
+    }
+
+    private static Evaluator compile(String claim, String template, IdGenerator ids) {
+        if (template == null) {
+            throw new ConfigurationException("Claim template for " + claim + " is empty");
+        }
+        List<String> literals = new ArrayList<>();
+        List<Evaluator> variables = new ArrayList<>();
+        int start = 0;
+        while (true) {
+            int open = template.indexOf("${", start);
+            if (open < 0) {
+                literals.add(template.substring(start));
+                break;
+            }
+            int close = template.indexOf('}', open + 2);
+            if (close < 0) {
+                throw new ConfigurationException("Unterminated placeholder in claim template for " + claim);
+            }
+            literals.add(template.substring(start, open));
+            String variable = template.substring(open + 2, close).trim();
+            variables.add(variable(claim, variable, ids));
+            if (variables.size() == 1 && open == 0 && close == template.length() - 1 && NUMERIC.contains(variable)) {
+                return variables.get(0);
+            }
+            start = close + 1;
+        }
+        if (variables.isEmpty()) {
+            String constant = literals.get(0);
+            return context -> constant;
+        }
+        if (variables.size() == 1 && literals.get(0).isEmpty() && literals.get(1).isEmpty()) {
+            return variables.get(0);
+        }
+        String[] text = literals.toArray(new String[0]);
+        Evaluator[] values = variables.toArray(new Evaluator[0]);
+        int textLength = literals.stream().mapToInt(String::length).sum();
+        return context -> {
+            StringBuilder out = new StringBuilder(textLength + 16 * values.length);
+            out.append(text[0]);
+            for (int v = 0; v < values.length; v++) {
+                out.append(values[v].evaluate(context)).append(text[v + 1]);
+            }
+            return out.toString();
+        };
+    }
+
+    private static Evaluator variable(String claim, String name, IdGenerator ids) {
+        switch (name) {
+            case "sub":
+                return Context::subject;
+            case "client_id":
+                return Context::clientId;
+            case "auth_time":
+                return context -> context.authTime();
+            case "iat":
+                return context -> context.issuedAt();
+            case "random":
+                return context -> ids.grantId();
+            case "counter":
+                AtomicLong counter = new AtomicLong();
+                return context -> counter.incrementAndGet();
+            default:
+                throw new ConfigurationException("Unknown placeholder ${" + name + "} in claim template for " + claim);
+        }
+    }
+}
@@ -20,55 +20,109 @@ package com.elevenware.fakeid.core;
  * #L%
  */
 
-import com.elevenware.fakeid.AutoAcceptClientStore;
 import com.elevenware.fakeid.Configuration;
+import com.elevenware.fakeid.ConfigurationException;
 import com.elevenware.fakeid.core.dto.AuthorizeRequest;
 import com.elevenware.fakeid.core.dto.AuthorizeResponse;
 import com.elevenware.fakeid.core.dto.IntrospectRequest;
 import com.elevenware.fakeid.core.dto.IntrospectResponse;
 import com.elevenware.fakeid.core.dto.TokenRequest;
 import com.elevenware.fakeid.core.dto.TokenResponse;
+import com.elevenware.fakeid.core.dto.UserInfoResponse;
+import com.elevenware.fakeid.core.error.InvalidGrantException;
+import com.elevenware.fakeid.core.error.InvalidScopeException;
+import com.elevenware.fakeid.core.error.InvalidTokenException;
 import com.elevenware.fakeid.core.error.UnsupportedGrantTypeException;
-import com.nimbusds.jose.jwk.RSAKey;
+import com.elevenware.fakeid.core.store.NoncePendingGrant;
+import com.elevenware.fakeid.core.store.RefreshGrant;
+import com.elevenware.fakeid.core.store.RefreshTokenStore;
+import com.elevenware.fakeid.core.store.SubjectIssuedGrant;
+import com.elevenware.fakeid.core.users.DirectoryUserStore;
+import com.elevenware.fakeid.core.users.UserDirectory;
+import com.elevenware.fakeid.core.users.UserSelection;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jwt.JWTClaimsSet;
 import com.oidc4j.v2.lib.Provider;
 import com.oidc4j.v2.lib.ProviderConfiguration;
 import com.oidc4j.v2.lib.SigningKeySource;
 import com.oidc4j.v2.lib.model.DiscoveryDocument;
-import com.oidc4j.v2.lib.store.ClientStore;
-import com.oidc4j.v2.lib.store.InMemoryIssuedGrantStore;
-import com.oidc4j.v2.lib.store.InMemoryPendingGrantStore;
-import com.oidc4j.v2.lib.store.InMemoryUserStore;
 import com.oidc4j.v2.lib.store.IssuedGrant;
 import com.oidc4j.v2.lib.store.PendingGrant;
-import com.oidc4j.v2.lib.store.User;
-import com.oidc4j.v2.lib.store.UserStore;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
-public class FakeIdCore {
+public class FakeIdCore implements AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(FakeIdCore.class);
+    private static final int MAX_CACHED_TEMPLATES = 256;
+    private static final ObjectMapper DISCOVERY_MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
 
     private final Configuration configuration;
     private final Provider provider;
-    private final TokenMinter tokenMinter;
-    private final Map<String, String> noncesByCode = new ConcurrentHashMap<>();
+    private final SigningKeyRing signingKeys;
+    private final TokenVerifier tokenVerifier;
+    private volatile TemplatedMinter templatedMinter;
+    private final TokenPool tokenPool;
+    private final Stores stores;
+    private final ScopeRegistry scopes;
+    private final IdGenerator ids;
+    private final UserSelection userSelection;
+    private final AtomicLong nextUser = new AtomicLong();
+    private final ClaimTemplates claimTemplates;
+    private final ScopeClaims scopeClaims;
+    private final UserInfoCache userInfoCache = new UserInfoCache();
 
     public FakeIdCore(Configuration configuration) {
         this.configuration = configuration;
-        this.provider = buildV2Provider(configuration);
-        this.tokenMinter = new TokenMinter(provider.getKeySource().getSigningKey(), configuration.getIssuer());
+        if (configuration.getKeyRotationSeconds() > 0
+                && JWSAlgorithm.Family.HMAC_SHA.contains(configuration.getSigningAlgorithm())) {
+            throw new ConfigurationException("Signing key rotation is not supported with HMAC signing");
+        }
+        ProviderConfiguration providerConfig = providerConfiguration(configuration);
+        this.scopes = new ScopeRegistry(providerConfig.getScopes());
+        this.ids = configuration.getIdGenerator() != null
+                ? configuration.getIdGenerator()
+                : new SecureIdGenerator();
+        this.userSelection = UserSelection.parse(configuration.getUserSelection());
+        this.claimTemplates = ClaimTemplates.compile(configuration.getClaimTemplates(), ids);
+        this.scopeClaims = configuration.isFilterClaimsByScope()
+                ? new ScopeClaims(configuration.getScopeClaims(), configuration.getClaims())
+                : null;
+        this.stores = Stores.resolve(configuration);
+        this.provider = buildV2Provider(configuration, providerConfig, stores);
+        this.tokenPool = configuration.getTokenPoolSize() > 0
+                ? new TokenPool(configuration.getTokenPoolSize(), Duration.ofSeconds(configuration.getTokenPoolMaxAgeSeconds()))
+                : null;
+        // pooled tokens carry the kid they were signed with, so the pool is emptied on rotation
+        this.signingKeys = new SigningKeyRing(
+                configuration.getJwks(),
+                configuration.getIssuer(),
+                configuration.getSigningAlgorithm(),
+                Duration.ofSeconds(configuration.getKeyRotationSeconds()),
+                Duration.ofSeconds(configuration.getKeyOverlapSeconds()),
+                tokenPool == null ? () -> { } : tokenPool::clear);
+        this.tokenVerifier = new TokenVerifier(signingKeys::key, configuration.getIssuer());
     }
 
     public TokenResponse token(TokenRequest request) {
@@ -78,21 +132,31 @@ public class FakeIdCore {
                 return authCodeGrant(request.code(), request.scope());
             case "client_credentials":
                 return clientCredentialsGrant(request.clientId(), request.scope());
+            case "refresh_token":
+                return refreshTokenGrant(request.refreshToken(), request.clientId(), request.scope());
             default:
                 throw new UnsupportedGrantTypeException(grantType);
         }
     }
 
+    public List<TokenResponse> tokens(List<TokenRequest> requests) {
+        return OrderedBatch.collect(requests, this::token);
+    }
+
+    public void tokens(List<TokenRequest> requests, Executor executor, int maxInFlight, Consumer<TokenResponse> sink) {
+        OrderedBatch.run(requests, this::token, executor, maxInFlight, sink);
+    }
+
     public AuthorizeResponse authorize(AuthorizeRequest request) {
         LOG.info("Auth Request for client {} with scopes {}", request.clientId(), request.scopes());
-        String subject = configuration.getClaims().get("sub").toString();
+        String subject = selectUser(request).get("sub").toString();
         String responseType = request.responseType();
         String code = null;
         String accessToken = null;
         String idToken = null;
 
         if (responseType.contains("code")) {
-            code = RandomStringUtils.randomAlphanumeric(16);
+            code = ids.authorizationCode();
             savePendingAuthCode(
                     code,
                     request.clientId(),
@@ -102,15 +166,10 @@ public class FakeIdCore {
                     request.nonce());
         }
         if (responseType.contains("token")) {
-            accessToken = RandomStringUtils.randomAlphanumeric(32);
-            saveIssuedGrant(request.clientId(), "implicit", request.scopes(), accessToken);
+            accessToken = issueAccessToken(request.clientId(), subject, "implicit", scopes.of(request.scopes()), null);
         }
         if (responseType.contains("id_token")) {
-            idToken = tokenMinter.mintIdToken(
-                    subject,
-                    request.clientId(),
-                    request.nonce(),
-                    configuration.getClaims());
+            idToken = mintIdToken(subject, request.clientId(), request.nonce(), scopes.of(request.scopes()), null);
         }
         return new AuthorizeResponse(
                 request.redirectUri(),
@@ -124,47 +183,159 @@ public class FakeIdCore {
         return provider.discoveryDocument();
     }
 
+    /**
+     * The discovery document as the HTTP adapter serves it, with the id_token signing
+     * algorithm taken from the configuration. oidc4j only knows about its RSA key
+     * source, so it can't advertise EC, EdDSA or HMAC algorithms itself.
+     */
+    public Map<String, Object> discoveryMetadata() {
+        Map<String, Object> metadata = new LinkedHashMap<>(
+                DISCOVERY_MAPPER.convertValue(provider.discoveryDocument(), new TypeReference<Map<String, Object>>() { }));
+        metadata.put("id_token_signing_alg_values_supported", List.of(configuration.getSigningAlgorithm().getName()));
+        return metadata;
+    }
+
     public Map<String, Object> jwks() {
-        return provider.getKeySource().getPublicJwks().toJSONObject();
+        return signingKeys.publicJwks();
+    }
+
+    /**
+     * Promotes the pre-published next key to signing, retires the current one and
+     * publishes a new next key. Runs on a schedule when key rotation is configured,
+     * but can be called directly to exercise a relying party's JWKS refresh.
+     */
+    public void rotateSigningKey() {
+        signingKeys.rotate();
     }
 
     public Map<String, Object> userInfo() {
         return configuration.getClaims();
     }
 
+    /**
+     * The claims of the user an access token was issued for.
+     *
+     * @throws InvalidTokenException if the token is unknown, invalid or expired
+     */
+    public Map<String, Object> userInfo(String accessToken) {
+        JWTClaimsSet token = verifyAccessToken(accessToken);
+        return claimsFor(token.getSubject(), scopes.parse(str(token.getClaim("scope"))));
+    }
+
+    /**
+     * {@link #userInfo()} serialized, for HTTP adapters to write as it is.
+     */
+    public UserInfoResponse userInfoResponse() {
+        return userInfoCache.get(null, scopes.parse(null), configuration::getClaims);
+    }
+
+    /**
+     * {@link #userInfo(String)} serialized, for HTTP adapters to write as it is. The
+     * response is reused for every token with the same subject and scopes. Without a
+     * user directory there is only one user to answer for, so a token this instance
+     * doesn't know, for example one issued before a restart, gets
+     * {@link #userInfoResponse()}.
+     *
+     * @throws InvalidTokenException if there is a user directory and the token is
+     *                               unknown, invalid or expired
+     */
+    public UserInfoResponse userInfoResponse(String accessToken) {
+        JWTClaimsSet token;
+        try {
+            token = verifyAccessToken(accessToken);
+        } catch (InvalidTokenException e) {
+            if (stores.directory != null) {
+                throw e;
+            }
+            return userInfoResponse();
+        }
+        String subject = token.getSubject();
+        ScopeSet granted = scopes.parse(str(token.getClaim("scope")));
+        // unfiltered claims are the same whatever the scopes, so share one response
+        ScopeSet key = scopeClaims == null ? scopes.parse(null) : granted;
+        return userInfoCache.get(subject, key, () -> claimsFor(subject, granted));
+    }
+
     public IntrospectResponse introspect(IntrospectRequest request) {
-        Optional<IssuedGrant> found = provider.getIssuedGrantStore().findByAccessToken(request.token());
+        if (configuration.isJwtAccessTokens()) {
+            JWTClaimsSet claims;
+            try {
+                claims = tokenVerifier.verifyAccessToken(request.token());
+            } catch (InvalidTokenException e) {
+                return new IntrospectResponse(false, null, null, null, null, null);
+            }
+            return new IntrospectResponse(
+                    true,
+                    str(claims.getClaim("client_id")),
+                    claims.getSubject(),
+                    str(claims.getClaim("scope")),
+                    claims.getExpirationTime().getTime() / 1000L,
+                    claims.getIssueTime().getTime() / 1000L);
+        }
+        Optional<IssuedGrant> found = provider.getIssuedGrantStore().findByAccessToken(request.token())
+                .filter(grant -> grant.getExpiresAt().isAfter(Instant.now()));
         if (found.isPresent()) {
             IssuedGrant grant = found.get();
             return new IntrospectResponse(
                     true,
                     grant.getClientId(),
-                    configuration.getClaims().get("sub").toString(),
-                    String.join(" ", grant.getGrantedScopes()),
+                    subjectOf(grant),
+                    ScopeSet.join(grant.getGrantedScopes()),
                     grant.getExpiresAt().getEpochSecond(),
                     grant.getIssuedAt().getEpochSecond());
         }
         return new IntrospectResponse(false, null, null, null, null, null);
     }
 
+    /**
+     * Verifies an id_token minted by this instance: signature, issuer and expiry, plus
+     * the audience and nonce when they are given. Verifiers are cached per key id, so
+     * this is cheap enough to call in a tight loop.
+     *
+     * @throws InvalidTokenException describing the first check that failed
+     */
+    public JWTClaimsSet verifyIdToken(String idToken, String audience, String nonce) {
+        return tokenVerifier.verifyIdToken(idToken, audience, nonce);
+    }
+
+    /**
+     * Verifies an access token issued by this instance. JWT access tokens are checked
+     * like id_tokens; opaque ones are looked up in the issued grant store and returned
+     * in the same claim shape.
+     *
+     * @throws InvalidTokenException if the token is unknown, invalid or expired
+     */
+    public JWTClaimsSet verifyAccessToken(String accessToken) {
+        if (configuration.isJwtAccessTokens()) {
+            return tokenVerifier.verifyAccessToken(accessToken);
+        }
+        IssuedGrant grant = provider.getIssuedGrantStore().findByAccessToken(accessToken)
+                .filter(g -> g.getExpiresAt().isAfter(Instant.now()))
+                .orElseThrow(() -> new InvalidTokenException("unknown or expired access token"));
+        return new JWTClaimsSet.Builder()
+                .issuer(configuration.getIssuer())
+                .subject(subjectOf(grant))
+                .claim("client_id", grant.getClientId())
+                .claim("scope", ScopeSet.join(grant.getGrantedScopes()))
+                .issueTime(Date.from(grant.getIssuedAt()))
+                .expirationTime(Date.from(grant.getExpiresAt()))
+                .build();
+    }
+
     public void savePendingAuthCode(String code, String clientId, String subject,
                                     Set<String> scopes, String redirectUri, String nonce) {
         Instant now = Instant.now();
-        PendingGrant pending = new PendingGrant(
+        PendingGrant pending = new NoncePendingGrant(
                 code,
                 clientId,
                 subject,
-                scopes == null ? Set.of() : scopes,
+                this.scopes.of(scopes),
                 redirectUri,
-                null,
-                null,
+                nonce,
                 now,
                 now.plus(10L, ChronoUnit.MINUTES));
         pending.grant();
         provider.getPendingGrantStore().save(pending);
-        if (nonce != null) {
-            noncesByCode.put(code, nonce);
-        }
     }
 
     private TokenResponse authCodeGrant(String authCode, String scope) {
@@ -173,76 +344,239 @@ public class FakeIdCore {
                 .orElseThrow(() -> new IllegalStateException("Unknown authorization code: " + authCode));
         String clientId = pending.getClientId();
         String idToken = null;
-        Set<String> scopes = pending.getConsentedScopes();
-        if (scopes == null) {
-            scopes = Collections.emptySet();
-        }
-        if (scope == null) {
-            scope = String.join(" ", scopes);
-        }
-        if (scope.contains("openid")) {
-            idToken = tokenMinter.mintIdToken(
-                    configuration.getClaims().get("sub").toString(),
-                    clientId,
-                    noncesByCode.remove(authCode),
-                    configuration.getClaims());
-        } else {
-            noncesByCode.remove(authCode);
+        ScopeSet granted = scopes.of(pending.getConsentedScopes());
+        ScopeSet requested = scope == null ? granted : scopes.parse(scope);
+        String subject = pending.getSubject() != null ? pending.getSubject() : defaultSubject();
+        if (requested.contains("openid")) {
+            String nonce = NoncePendingGrant.nonceOf(pending);
+            // only the configured user's id_tokens are pooled, as the pool is keyed by client and scope
+            if (nonce == null && tokenPool != null && stores.directory == null && claimTemplates.isEmpty()
+                    && subject.equals(defaultSubject())) {
+                idToken = tokenPool.take(
+                        "id_token " + clientId + " " + requested.value(),
+                        () -> mintIdToken(subject, clientId, null, requested, null));
+            } else {
+                idToken = mintIdToken(subject, clientId, nonce, requested, pending.getCreatedAt());
+            }
         }
-        String accessToken = RandomStringUtils.randomAlphanumeric(32);
-        saveIssuedGrant(clientId, "authorization_code", scopes, accessToken);
+        String refreshToken = issueRefreshToken(clientId, subject, granted, ids.grantId(), pending.getCreatedAt());
+        String accessToken = issueAccessToken(clientId, subject, "authorization_code", granted, refreshToken);
 
         LOG.info("Token issued using auth code grant for client {}", clientId);
         return new TokenResponse(
                 accessToken,
                 "Bearer",
                 3600,
-                scope,
+                requested.value(),
                 System.currentTimeMillis() / 1000L,
                 clientId,
                 "authorization_code",
-                idToken);
+                idToken,
+                refreshToken);
     }
 
-    private TokenResponse clientCredentialsGrant(String clientId, String scope) {
-        String accessToken = RandomStringUtils.randomAlphanumeric(32);
-        Set<String> scopes = new HashSet<>();
-        if (scope != null) {
-            for (String s : scope.split(" ")) {
-                scopes.add(s);
+    /**
+     * Exchanges a refresh token for a new access token, optionally for fewer scopes than
+     * were granted. With rotation on, each refresh token works once and is replaced by
+     * a new one in the same family; presenting a used one revokes the whole family, as
+     * it means the token has leaked.
+     */
+    private TokenResponse refreshTokenGrant(String refreshToken, String clientId, String scope) {
+        if (refreshToken == null) {
+            throw new InvalidGrantException("missing refresh_token");
+        }
+        RefreshTokenStore refreshTokens = stores.refreshTokens;
+        RefreshGrant grant = refreshTokens.find(refreshToken)
+                .orElseThrow(() -> new InvalidGrantException("unknown, expired or revoked refresh token"));
+        if (clientId != null && !clientId.equals(grant.clientId())) {
+            throw new InvalidGrantException("refresh token was issued to another client");
+        }
+        ScopeSet granted = scopes.of(grant.scopes());
+        ScopeSet requested = scope == null ? granted : scopes.parse(scope);
+        if (!granted.containsAll(requested)) {
+            throw new InvalidScopeException("requested scope exceeds the original grant");
+        }
+        String rotated = null;
+        if (configuration.isRotateRefreshTokens()) {
+            if (!refreshTokens.markUsed(refreshToken)) {
+                LOG.warn("Refresh token reused by client {}, revoking its token family", grant.clientId());
+                refreshTokens.revokeFamily(grant.family(),
+                        Instant.now().plusSeconds(configuration.getRefreshTokenTtlSeconds()));
+                throw new InvalidGrantException("refresh token has already been used");
             }
+            rotated = issueRefreshToken(grant.clientId(), grant.subject(), granted, grant.family(), grant.authTime());
+        }
+        String idToken = requested.contains("openid")
+                ? mintIdToken(grant.subject(), grant.clientId(), null, requested, grant.authTime())
+                : null;
+        String accessToken = issueAccessToken(grant.clientId(), grant.subject(), "refresh_token", requested,
+                rotated != null ? rotated : refreshToken);
+
+        LOG.info("Token issued using refresh token grant for client {}", grant.clientId());
+        return new TokenResponse(
+                accessToken,
+                "Bearer",
+                3600,
+                requested.value(),
+                System.currentTimeMillis() / 1000L,
+                grant.clientId(),
+                "refresh_token",
+                idToken,
+                rotated);
+    }
+
+    private String issueRefreshToken(String clientId, String subject, ScopeSet scopes, String family,
+                                     Instant authTime) {
+        long ttlSeconds = configuration.getRefreshTokenTtlSeconds();
+        if (ttlSeconds <= 0) {
+            return null;
+        }
+        Instant now = Instant.now();
+        String refreshToken = ids.refreshToken();
+        stores.refreshTokens.save(new RefreshGrant(
+                refreshToken, family, clientId, subject, scopes, authTime, now, now.plusSeconds(ttlSeconds)));
+        return refreshToken;
+    }
+
+    private String mintIdToken(String subject, String audience, String nonce, ScopeSet granted, Instant authTime) {
+        TokenMinter minter = signingKeys.current();
+        if (configuration.isTemplatedIdTokens() && stores.directory == null) {
+            return templateFor(minter, granted).mint(audience, nonce, authTime);
+        }
+        return minter.mintIdToken(subject, audience, nonce, claimsFor(subject, granted), claimTemplates, authTime);
+    }
+
+    /**
+     * Picks who signs in: the user named by {@code login_hint} if there is one, and
+     * otherwise whoever the selection policy picks. Without a user directory it is
+     * always the configured user.
+     */
+    private Map<String, Object> selectUser(AuthorizeRequest request) {
+        UserDirectory directory = stores.directory;
+        if (directory == null || directory.size() == 0) {
+            return configuration.getClaims();
+        }
+        if (request.loginHint() != null) {
+            Optional<Map<String, Object>> hinted = directory.findByLoginHint(request.loginHint());
+            if (hinted.isPresent()) {
+                return hinted.get();
+            }
+            LOG.warn("No user matches login_hint {}, picking one by {}", request.loginHint(), userSelection.value());
+        }
+        return directory.get(userSelection.pick(request, directory.size(), nextUser));
+    }
+
+    /**
+     * The claims of {@code subject} that {@code granted} releases. Unless claims are
+     * filtered by scope, that is all of them.
+     */
+    private Map<String, Object> claimsFor(String subject, ScopeSet granted) {
+        Map<String, Object> claims = configuration.getClaims();
+        if (stores.directory != null && subject != null) {
+            Optional<Map<String, Object>> user = stores.directory.findBySubject(subject);
+            if (user.isPresent()) {
+                claims = user.get();
+            }
+        }
+        return scopeClaims == null ? claims : scopeClaims.filter(claims, granted);
+    }
+
+    private String subjectOf(IssuedGrant grant) {
+        String subject = SubjectIssuedGrant.subjectOf(grant);
+        return subject != null ? subject : defaultSubject();
+    }
+
+    private String defaultSubject() {
+        return configuration.getClaims().get("sub").toString();
+    }
+
+    /**
+     * The id_token template for the configured user with the claims {@code granted}
+     * releases. Templates are kept per signing key and, when claims are filtered by
+     * scope, per distinct set of scopes.
+     */
+    private IdTokenTemplate templateFor(TokenMinter minter, ScopeSet granted) {
+        TemplatedMinter templated = templatedMinter;
+        if (templated == null || templated.minter != minter) {
+            templated = new TemplatedMinter(minter, new ConcurrentHashMap<>());
+            templatedMinter = templated;
+        }
+        ScopeSet key = scopeClaims == null ? scopes.parse(null) : granted;
+        IdTokenTemplate template = templated.templates.get(key);
+        if (template == null) {
+            template = minter.idTokenTemplate(defaultSubject(), claimsFor(null, granted), claimTemplates);
+            if (templated.templates.size() < MAX_CACHED_TEMPLATES) {
+                templated.templates.putIfAbsent(key, template);
+            }
+        }
+        return template;
+    }
+
+    private TokenResponse clientCredentialsGrant(String clientId, String scope) {
+        ScopeSet requested = scopes.parse(scope);
+        String accessToken;
+        if (configuration.isJwtAccessTokens() && tokenPool != null) {
+            accessToken = tokenPool.take(
+                    "access_token " + clientId + " " + requested.value(),
+                    () -> signingKeys.current().mintAccessToken(clientId, clientId, requested));
         } else {
-            scope = "";
+            accessToken = issueAccessToken(clientId, clientId, "client_credentials", requested, null);
         }
-        saveIssuedGrant(clientId, "client_credentials", scopes, accessToken);
 
         LOG.info("Token issued using client credentials grant for client {}", clientId);
         return new TokenResponse(
                 accessToken,
                 "Bearer",
                 3600,
-                scope,
+                requested.value(),
                 System.currentTimeMillis() / 1000L,
                 clientId,
                 "client_credentials",
+                null,
                 null);
     }
 
-    private void saveIssuedGrant(String clientId, String grantType, Set<String> scopes, String accessToken) {
+    private String issueAccessToken(String clientId, String subject, String grantType, Set<String> scopes,
+                                    String refreshToken) {
+        if (configuration.isJwtAccessTokens()) {
+            return signingKeys.current().mintAccessToken(subject, clientId, scopes);
+        }
+        String accessToken = ids.accessToken();
+        saveIssuedGrant(clientId, "client_credentials".equals(grantType) ? null : subject, grantType, scopes,
+                accessToken, refreshToken);
+        return accessToken;
+    }
+
+    /**
+     * Client credentials grants are recorded without a subject, and introspect as the
+     * configured user as they always have.
+     */
+    private void saveIssuedGrant(String clientId, String subject, String grantType, Set<String> scopes,
+                                 String accessToken, String refreshToken) {
         Instant now = Instant.now();
-        provider.getIssuedGrantStore().save(new IssuedGrant(
-                UUID.randomUUID().toString(),
+        provider.getIssuedGrantStore().save(new SubjectIssuedGrant(
+                ids.grantId(),
                 clientId,
                 grantType,
                 scopes,
                 accessToken,
-                null,
+                refreshToken,
+                subject,
                 now,
                 now.plus(1L, ChronoUnit.HOURS)));
     }
 
-    private static Provider buildV2Provider(Configuration configuration) {
-        ProviderConfiguration providerConfig = ProviderConfiguration.builder()
+    @Override
+    public void close() {
+        if (tokenPool != null) {
+            tokenPool.close();
+        }
+        signingKeys.close();
+        stores.close();
+    }
+
+    private static ProviderConfiguration providerConfiguration(Configuration configuration) {
+        ProviderConfiguration.Builder builder = ProviderConfiguration.builder()
                 .issuer(configuration.getIssuer())
                 .grantType("authorization_code")
                 .grantType("client_credentials")
@@ -251,40 +585,38 @@ public class FakeIdCore {
                 .clientAuthMethod("client_secret_post")
                 .scope("openid")
                 .scope("profile")
-                .scope("email")
-                .build();
+                .scope("email");
+        if (configuration.getScopeClaims() != null) {
+            configuration.getScopeClaims().keySet().stream()
+                    .filter(scope -> !Set.of("openid", "profile", "email").contains(scope))
+                    .forEach(builder::scope);
+        }
+        return builder.build();
+    }
 
-        RSAKey signingKey = (RSAKey) configuration.getJwks().getKeyByKeyId("signingKey");
-        SigningKeySource keySource = new SigningKeySource(signingKey);
+    private static Provider buildV2Provider(Configuration configuration,
+                                            ProviderConfiguration providerConfig,
+                                            Stores stores) {
+        JWK signingKey = configuration.getJwks().getKeyByKeyId("signingKey");
+        SigningKeySource keySource = new JwkSigningKeySource(signingKey);
 
-        ClientStore clientStore = new AutoAcceptClientStore();
-        UserStore userStore = new InMemoryUserStore();
-        Object subject = configuration.getClaims().get("sub");
-        if (subject != null) {
-            userStore.save(userFromClaims(subject.toString(), configuration.getClaims()));
+        if (configuration.getClaims().get("sub") != null) {
+            stores.users.save(DirectoryUserStore.toUser(configuration.getClaims()));
         }
 
         return new Provider(
                 providerConfig,
-                clientStore,
-                new InMemoryPendingGrantStore(),
-                new InMemoryIssuedGrantStore(),
-                userStore,
+                stores.clients,
+                stores.pendingGrants,
+                stores.issuedGrants,
+                stores.users,
                 keySource);
     }
 
-    private static User userFromClaims(String subject, Map<String, Object> claims) {
-        return new User(
-                subject,
-                str(claims.get("name")),
-                str(claims.get("preferred_username")),
-                str(claims.get("given_name")),
-                str(claims.get("family_name")),
-                str(claims.get("email")),
-                Boolean.TRUE.equals(claims.get("email_verified")));
-    }
-
     private static String str(Object v) {
         return v == null ? null : v.toString();
     }
+
+    private record TemplatedMinter(TokenMinter minter, Map<ScopeSet, IdTokenTemplate> templates) {
+    }
 }
@@ -0,0 +1,39 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Makes the identifiers Fake ID hands out. Set one on the configuration to control
+ * their format, for example to make them predictable in a test. Implementations are
+ * called from many threads at once.
+ */
+public interface IdGenerator {
+
+    String authorizationCode();
+
+    String accessToken();
+
+    String grantId();
+
+    default String refreshToken() {
+        return accessToken();
+    }
+}
@@ -0,0 +1,151 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An id_token for a single subject with everything but {@code aud}, {@code iat},
+ * {@code exp} and {@code nonce} serialized and base64url-encoded up front.
+ * <p>
+ * The static claims are padded with JSON whitespace to a multiple of three bytes,
+ * so their base64url form can be reused as-is and only the short dynamic tail has
+ * to be written and encoded per token. Templated claims are worked out and written
+ * into that tail too. Instances are immutable and thread-safe.
+ */
+public final class IdTokenTemplate {
+
+    private static final Set<String> DYNAMIC_CLAIMS = Set.of("aud", "iat", "exp", "nonce");
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final JWSHeader header;
+    private final JWSSigner signer;
+    private final byte[] signingInputPrefix;
+    private final String defaultNonce;
+    private final String subject;
+    private final ClaimTemplates templates;
+
+    IdTokenTemplate(JWSHeader header, JWSSigner signer, String issuer, String subject, Map<String, Object> claims,
+                    ClaimTemplates templates) {
+        this.header = header;
+        this.signer = signer;
+        this.subject = subject;
+        this.templates = templates;
+        Set<String> templated = templates.names();
+        JWTClaimsSet.Builder claimsBuilder = new JWTClaimsSet.Builder();
+        for (Map.Entry<String, Object> claim : claims.entrySet()) {
+            if (!DYNAMIC_CLAIMS.contains(claim.getKey()) && !templated.contains(claim.getKey())) {
+                claimsBuilder.claim(claim.getKey(), claim.getValue());
+            }
+        }
+        claimsBuilder.subject(subject);
+        claimsBuilder.claim("iss", issuer);
+        Object nonce = claims.get("nonce");
+        this.defaultNonce = nonce == null ? null : nonce.toString();
+
+        String json = claimsBuilder.build().toString();
+        String staticJson = json.substring(0, json.length() - 1);
+        int padding = (3 - staticJson.getBytes(StandardCharsets.UTF_8).length % 3) % 3;
+        byte[] staticBytes = (staticJson + " ".repeat(padding)).getBytes(StandardCharsets.UTF_8);
+
+        this.signingInputPrefix = (header.toBase64URL() + "." + ENCODER.encodeToString(staticBytes))
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public String mint(String audience, String nonce) {
+        return mint(audience, nonce, null);
+    }
+
+    /**
+     * @param authTime when the user signed in, for templated claims; {@code null} means now
+     */
+    public String mint(String audience, String nonce, Instant authTime) {
+        Instant now = Instant.now();
+        long issuedAt = now.getEpochSecond();
+        long expiresAt = now.plus(1L, ChronoUnit.HOURS).getEpochSecond();
+        if (nonce == null) {
+            nonce = defaultNonce;
+        }
+
+        StringBuilder tail = new StringBuilder(templates.isEmpty() ? 96 : 192);
+        if (!templates.isEmpty()) {
+            templates.appendJson(new ClaimTemplates.Context(subject, audience,
+                    authTime == null ? issuedAt : authTime.getEpochSecond(), issuedAt), tail);
+        }
+        tail.append(",\"aud\":");
+        appendString(tail, audience);
+        tail.append(",\"iat\":").append(issuedAt);
+        tail.append(",\"exp\":").append(expiresAt);
+        if (nonce != null) {
+            tail.append(",\"nonce\":");
+            appendString(tail, nonce);
+        }
+        tail.append('}');
+        byte[] encodedTail = ENCODER.encode(tail.toString().getBytes(StandardCharsets.UTF_8));
+
+        byte[] signingInput = new byte[signingInputPrefix.length + encodedTail.length];
+        System.arraycopy(signingInputPrefix, 0, signingInput, 0, signingInputPrefix.length);
+        System.arraycopy(encodedTail, 0, signingInput, signingInputPrefix.length, encodedTail.length);
+        try {
+            Base64URL signature = signer.sign(header, signingInput);
+            return new String(signingInput, StandardCharsets.US_ASCII) + "." + signature;
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Failed to sign id_token", e);
+        }
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
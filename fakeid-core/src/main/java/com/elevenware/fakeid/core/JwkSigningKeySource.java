@@ -0,0 +1,57 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.ConfigurationException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.oidc4j.v2.lib.SigningKeySource;
+
+/**
+ * Hands oidc4j the configured signing key whatever its type. oidc4j can only sign with
+ * RSA keys, so for EC, OKP and HMAC keys asking for the signing key is a configuration
+ * error; FakeIdCore does its own signing, and the public JWKS is published for every type.
+ */
+final class JwkSigningKeySource extends SigningKeySource {
+
+    private final JWK key;
+
+    JwkSigningKeySource(JWK key) {
+        super(key instanceof RSAKey ? (RSAKey) key : null);
+        this.key = key;
+    }
+
+    @Override
+    public RSAKey getSigningKey() {
+        if (key instanceof RSAKey) {
+            return (RSAKey) key;
+        }
+        throw new ConfigurationException("oidc4j can only sign with RSA keys, the configured signing key is "
+                + key.getKeyType());
+    }
+
+    @Override
+    public JWKSet getPublicJwks() {
+        return new JWKSet(key).toPublicJWKSet();
+    }
+
+}
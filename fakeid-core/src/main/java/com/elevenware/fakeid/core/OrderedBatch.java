@@ -0,0 +1,76 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Fans a list of independent work items out over an executor and hands the results
+ * back in input order. At most {@code maxInFlight} items are submitted ahead of the
+ * sink, so a slow consumer throttles the producers instead of buffering the whole
+ * batch in memory.
+ */
+final class OrderedBatch {
+
+    static final int DEFAULT_MAX_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 4;
+
+    private OrderedBatch() {
+    }
+
+    static <T, R> List<R> collect(List<T> items, Function<T, R> work) {
+        List<R> results = new ArrayList<>(items.size());
+        run(items, work, ForkJoinPool.commonPool(), DEFAULT_MAX_IN_FLIGHT, results::add);
+        return results;
+    }
+
+    static <T, R> void run(List<T> items, Function<T, R> work, Executor executor, int maxInFlight, Consumer<R> sink) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        Deque<CompletableFuture<R>> inFlight = new ArrayDeque<>(Math.min(maxInFlight, items.size()));
+        try {
+            for (T item : items) {
+                if (inFlight.size() >= maxInFlight) {
+                    sink.accept(inFlight.poll().join());
+                }
+                inFlight.add(CompletableFuture.supplyAsync(() -> work.apply(item), executor));
+            }
+            while (!inFlight.isEmpty()) {
+                sink.accept(inFlight.poll().join());
+            }
+        } catch (CompletionException e) {
+            inFlight.forEach(f -> f.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
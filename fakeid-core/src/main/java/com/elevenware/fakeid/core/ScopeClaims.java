@@ -0,0 +1,139 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which of a user's claims each scope releases. The OpenID Connect scopes
+ * {@code profile}, {@code email}, {@code address} and {@code phone} release their
+ * standard claims, and the configuration can add scopes of its own or change what
+ * those release. A claim no scope mentions is always released, as is {@code sub}.
+ * <p>
+ * The claims a set of scopes withholds is worked out once per distinct set, and the
+ * configured user's filtered claims are kept per set too, up to a limit.
+ */
+final class ScopeClaims {
+
+    static final Map<String, List<String>> STANDARD = Map.of(
+            "profile", List.of("name", "family_name", "given_name", "middle_name", "nickname",
+                    "preferred_username", "profile", "picture", "website", "gender", "birthdate",
+                    "zoneinfo", "locale", "updated_at"),
+            "email", List.of("email", "email_verified"),
+            "address", List.of("address"),
+            "phone", List.of("phone_number", "phone_number_verified"));
+
+    private static final int MAX_CACHED = 4096;
+
+    private final Map<String, Set<String>> byScope;
+    private final Set<String> scoped;
+    private final Map<String, Object> defaultClaims;
+    private final Map<ScopeSet, Set<String>> withheld = new ConcurrentHashMap<>();
+    private final Map<ScopeSet, Map<String, Object>> defaultFiltered = new ConcurrentHashMap<>();
+
+    ScopeClaims(Map<String, List<String>> custom, Map<String, Object> defaultClaims) {
+        Map<String, Set<String>> byScope = new HashMap<>();
+        STANDARD.forEach((scope, claims) -> byScope.put(scope, Set.copyOf(claims)));
+        if (custom != null) {
+            custom.forEach((scope, claims) -> byScope.put(scope, Set.copyOf(claims)));
+        }
+        Set<String> scoped = new HashSet<>();
+        byScope.values().forEach(scoped::addAll);
+        scoped.remove("sub");
+        this.byScope = byScope;
+        this.scoped = scoped;
+        this.defaultClaims = defaultClaims;
+    }
+
+    /**
+     * The scopes that release claims, to advertise alongside the built-in ones.
+     */
+    Set<String> scopes() {
+        return byScope.keySet();
+    }
+
+    /**
+     * The claims {@code scopes} releases. The map passed in is returned as it is when
+     * nothing has to be left out.
+     */
+    Map<String, Object> filter(Map<String, Object> claims, ScopeSet scopes) {
+        if (claims == defaultClaims) {
+            Map<String, Object> filtered = defaultFiltered.get(scopes);
+            if (filtered == null) {
+                filtered = filter(claims, withheld(scopes));
+                if (defaultFiltered.size() < MAX_CACHED) {
+                    defaultFiltered.putIfAbsent(scopes, filtered);
+                }
+            }
+            return filtered;
+        }
+        return filter(claims, withheld(scopes));
+    }
+
+    private Set<String> withheld(ScopeSet scopes) {
+        Set<String> cached = withheld.get(scopes);
+        if (cached != null) {
+            return cached;
+        }
+        Set<String> released = new HashSet<>();
+        for (String scope : scopes) {
+            Collection<String> claims = byScope.get(scope);
+            if (claims != null) {
+                released.addAll(claims);
+            }
+        }
+        Set<String> computed = new HashSet<>(scoped);
+        computed.removeAll(released);
+        computed = Collections.unmodifiableSet(computed);
+        if (withheld.size() < MAX_CACHED) {
+            withheld.putIfAbsent(scopes, computed);
+        }
+        return computed;
+    }
+
+    private static Map<String, Object> filter(Map<String, Object> claims, Set<String> withheld) {
+        boolean any = false;
+        for (String claim : claims.keySet()) {
+            if (withheld.contains(claim)) {
+                any = true;
+                break;
+            }
+        }
+        if (!any) {
+            return claims;
+        }
+        Map<String, Object> filtered = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> claim : claims.entrySet()) {
+            if (!withheld.contains(claim.getKey())) {
+                filtered.put(claim.getKey(), claim.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(filtered);
+    }
+}
@@ -0,0 +1,200 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns scope strings into interned {@link ScopeSet}s. Each scope the provider
+ * advertises gets a bit; any other name a client sends is kept by name alongside the
+ * bits, so the registry itself never grows after construction. Parsed strings and
+ * distinct sets are cached up to a limit, so a client that sends a new scope string on
+ * every request costs a parse but can't grow the caches without end.
+ */
+final class ScopeRegistry {
+
+    private static final int MAX_CACHED = 4096;
+
+    private static final String[] NONE = new String[0];
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final Map<String, ScopeSet> parsed = new ConcurrentHashMap<>();
+    private final Map<Key, ScopeSet> interned = new ConcurrentHashMap<>();
+    private final String[] names;
+    private final ScopeSet empty;
+
+    ScopeRegistry(Collection<String> scopes) {
+        this.names = scopes.stream().distinct().toArray(String[]::new);
+        for (int i = 0; i < names.length; i++) {
+            indexes.put(names[i], i);
+        }
+        this.empty = intern(new Members());
+    }
+
+    /**
+     * Parses a space-separated scope parameter. {@code null} and blank strings are the
+     * empty set.
+     */
+    ScopeSet parse(String scope) {
+        if (scope == null || scope.isBlank()) {
+            return empty;
+        }
+        ScopeSet set = parsed.get(scope);
+        if (set != null) {
+            return set;
+        }
+        Members members = new Members();
+        add(members, scope);
+        set = intern(members);
+        if (parsed.size() < MAX_CACHED) {
+            parsed.putIfAbsent(scope, set);
+        }
+        return set;
+    }
+
+    ScopeSet of(Collection<String> scopes) {
+        if (scopes == null || scopes.isEmpty()) {
+            return empty;
+        }
+        if (scopes instanceof ScopeSet && ((ScopeSet) scopes).registry() == this) {
+            return (ScopeSet) scopes;
+        }
+        Members members = new Members();
+        for (String scope : scopes) {
+            add(members, scope);
+        }
+        return intern(members);
+    }
+
+    /**
+     * Adds each space-separated name in {@code scope}. Collections built straight from
+     * a request parameter hold the whole parameter as one element, so elements are split
+     * just like a parsed string.
+     */
+    private void add(Members members, String scope) {
+        int start = 0;
+        while (start < scope.length()) {
+            int end = scope.indexOf(' ', start);
+            if (end < 0) {
+                end = scope.length();
+            }
+            if (end > start) {
+                members.add(scope.substring(start, end));
+            }
+            start = end + 1;
+        }
+    }
+
+    int indexOf(String scope) {
+        Integer index = indexes.get(scope);
+        return index == null ? -1 : index;
+    }
+
+    private ScopeSet intern(Members scopes) {
+        long[] bits = scopes.bits;
+        String[] others = scopes.others == null ? NONE : scopes.others.toArray(NONE);
+        Key key = new Key(bits, others);
+        ScopeSet set = interned.get(key);
+        if (set != null) {
+            return set;
+        }
+        String[] members = new String[count(bits) + others.length];
+        int member = 0;
+        for (int word = 0; word < bits.length; word++) {
+            for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1) {
+                members[member++] = names[word * 64 + Long.numberOfTrailingZeros(remaining)];
+            }
+        }
+        System.arraycopy(others, 0, members, member, others.length);
+        set = new ScopeSet(this, bits, others, members);
+        if (interned.size() < MAX_CACHED) {
+            ScopeSet existing = interned.putIfAbsent(key, set);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return set;
+    }
+
+    private static int count(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * The scopes gathered while parsing: bits for registered names, and the rest sorted
+     * so equal sets build equal keys.
+     */
+    private final class Members {
+
+        long[] bits = new long[0];
+        TreeSet<String> others;
+
+        void add(String scope) {
+            Integer index = indexes.get(scope);
+            if (index == null) {
+                if (others == null) {
+                    others = new TreeSet<>();
+                }
+                others.add(scope);
+                return;
+            }
+            int word = index >>> 6;
+            if (word >= bits.length) {
+                bits = Arrays.copyOf(bits, word + 1);
+            }
+            bits[word] |= 1L << index;
+        }
+    }
+
+    private static final class Key {
+
+        private final long[] bits;
+        private final String[] others;
+        private final int hash;
+
+        Key(long[] bits, String[] others) {
+            this.bits = bits;
+            this.others = others;
+            this.hash = 31 * Arrays.hashCode(bits) + Arrays.hashCode(others);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key
+                    && Arrays.equals(bits, ((Key) o).bits)
+                    && Arrays.equals(others, ((Key) o).others);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
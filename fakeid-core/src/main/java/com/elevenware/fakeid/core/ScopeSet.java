@@ -0,0 +1,113 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * An immutable set of scopes, held as a bitset over the names in a
+ * {@link ScopeRegistry} plus a sorted array of any names the registry doesn't know.
+ * Equal sets from the same registry are usually the same
+ * instance, and the space-separated form is worked out once, so passing scopes around
+ * the token path doesn't allocate. {@link #contains(Object)} matches whole scope names.
+ */
+public final class ScopeSet extends AbstractSet<String> {
+
+    private final ScopeRegistry registry;
+    private final long[] bits;
+    private final String[] others;
+    private final String[] members;
+    private final String value;
+    private final int hash;
+
+    ScopeSet(ScopeRegistry registry, long[] bits, String[] others, String[] members) {
+        this.registry = registry;
+        this.bits = bits;
+        this.others = others;
+        this.members = members;
+        this.value = String.join(" ", members);
+        int hash = 0;
+        for (String member : members) {
+            hash += member.hashCode();
+        }
+        this.hash = hash;
+    }
+
+    /**
+     * The scopes as a space-separated string: registered scopes in the order the
+     * provider advertises them, then any others in alphabetical order.
+     */
+    public String value() {
+        return value;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        int index = registry.indexOf((String) o);
+        return index >= 0 ? isSet(index) : Arrays.binarySearch(others, o) >= 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return Arrays.asList(members).iterator();
+    }
+
+    @Override
+    public int size() {
+        return members.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ScopeSet && ((ScopeSet) o).registry == registry) {
+            return Arrays.equals(bits, ((ScopeSet) o).bits) && Arrays.equals(others, ((ScopeSet) o).others);
+        }
+        return o instanceof Set && super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * The space-separated form of any set of scopes, without joining when it is a
+     * {@code ScopeSet}.
+     */
+    static String join(Set<String> scopes) {
+        return scopes instanceof ScopeSet ? ((ScopeSet) scopes).value() : String.join(" ", scopes);
+    }
+
+    ScopeRegistry registry() {
+        return registry;
+    }
+
+    private boolean isSet(int index) {
+        int word = index >>> 6;
+        return word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+}
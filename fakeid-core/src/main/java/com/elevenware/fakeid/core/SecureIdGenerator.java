@@ -0,0 +1,138 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * The default {@link IdGenerator}. Random bytes come from a fixed set of buffers, each
+ * with its own {@link SecureRandom} and filled in bulk, and a thread picks its buffer by
+ * hash, so threads rarely queue on the same lock and memory doesn't grow with the number
+ * of threads. Codes (96 bits) and access tokens (192 bits) are base64url without padding;
+ * grant ids are random UUIDs.
+ */
+public final class SecureIdGenerator implements IdGenerator {
+
+    private static final int BUFFER_BYTES = 4096;
+    private static final int MAX_STRIPES = 32;
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+    private final Buffer[] buffers;
+    private final int mask;
+
+    public SecureIdGenerator() {
+        // the power of two at or above twice the CPU count, so each buffer sees little contention
+        int stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2);
+        this.buffers = new Buffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            buffers[i] = new Buffer();
+        }
+        this.mask = stripes - 1;
+    }
+
+    @Override
+    public String authorizationCode() {
+        return buffer().base64Url(12);
+    }
+
+    @Override
+    public String accessToken() {
+        return buffer().base64Url(24);
+    }
+
+    @Override
+    public String grantId() {
+        return buffer().uuid().toString();
+    }
+
+    private Buffer buffer() {
+        int hash = System.identityHashCode(Thread.currentThread());
+        return buffers[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private static final class Buffer {
+
+        private final SecureRandom random = newRandom();
+        private final byte[] bytes = new byte[BUFFER_BYTES];
+        private int position = BUFFER_BYTES;
+
+        synchronized String base64Url(int length) {
+            int start = take(length);
+            byte[] encoded = new byte[(length * 4 + 2) / 3];
+            int out = 0;
+            int end = start + length;
+            int i = start;
+            for (; i + 3 <= end; i += 3) {
+                int bits = (bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF);
+                encoded[out++] = ALPHABET[bits >>> 18];
+                encoded[out++] = ALPHABET[(bits >>> 12) & 0x3F];
+                encoded[out++] = ALPHABET[(bits >>> 6) & 0x3F];
+                encoded[out++] = ALPHABET[bits & 0x3F];
+            }
+            if (i < end) {
+                int bits = (bytes[i] & 0xFF) << 16 | (i + 1 < end ? (bytes[i + 1] & 0xFF) << 8 : 0);
+                encoded[out++] = ALPHABET[bits >>> 18];
+                encoded[out++] = ALPHABET[(bits >>> 12) & 0x3F];
+                if (i + 1 < end) {
+                    encoded[out] = ALPHABET[(bits >>> 6) & 0x3F];
+                }
+            }
+            return new String(encoded, StandardCharsets.US_ASCII);
+        }
+
+        synchronized UUID uuid() {
+            long mostSignificant = (nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L;
+            long leastSignificant = (nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+            return new UUID(mostSignificant, leastSignificant);
+        }
+
+        private long nextLong() {
+            int start = take(8);
+            long value = 0;
+            for (int i = start; i < start + 8; i++) {
+                value = (value << 8) | (bytes[i] & 0xFF);
+            }
+            return value;
+        }
+
+        private int take(int length) {
+            if (position + length > bytes.length) {
+                random.nextBytes(bytes);
+                position = 0;
+            }
+            int start = position;
+            position += length;
+            return start;
+        }
+
+        private static SecureRandom newRandom() {
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.SigningKeys;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The set of keys Fake ID publishes, and the one it currently signs with.
+ * <p>
+ * On each rotation the pre-published next key starts signing, the previous key is
+ * retired but stays published for the overlap window, and a fresh next key is
+ * generated and published ahead of its use. Retired keys are dropped when their
+ * overlap ends, whether or not another rotation has happened by then. Readers see an immutable snapshot, so
+ * looking up the current minter or a key by {@code kid} never takes a lock.
+ */
+final class SigningKeyRing implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SigningKeyRing.class);
+
+    private final String issuer;
+    private final JWSAlgorithm algorithm;
+    private final Duration overlap;
+    private final ScheduledExecutorService rotator;
+    private final Runnable rotated;
+    private volatile State state;
+
+    /**
+     * @param rotated run after each rotation, once the new key is signing
+     */
+    SigningKeyRing(JWKSet jwks, String issuer, JWSAlgorithm algorithm, Duration rotationInterval, Duration overlap,
+                   Runnable rotated) {
+        this.issuer = issuer;
+        this.algorithm = algorithm;
+        this.overlap = overlap;
+        this.rotated = rotated;
+        JWK signingKey = jwks.getKeyByKeyId("signingKey");
+        Map<String, JWK> keys = new LinkedHashMap<>();
+        for (JWK key : jwks.getKeys()) {
+            keys.put(key.getKeyID(), key);
+        }
+        this.state = new State(new TokenMinter(signingKey, issuer), signingKey.getKeyID(), null, keys, Map.of());
+        this.rotator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fakeid-key-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (rotationInterval.isZero()) {
+            return;
+        }
+        rotator.execute(this::prepareNext);
+        long intervalMillis = rotationInterval.toMillis();
+        rotator.scheduleAtFixedRate(this::rotate, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    TokenMinter current() {
+        return state.current;
+    }
+
+    JWK key(String keyId) {
+        return keyId == null ? null : state.keys.get(keyId);
+    }
+
+    /**
+     * The published keys as a JWKS document. It is shared between callers, so neither the
+     * map nor the key list and key maps inside it can be modified.
+     */
+    Map<String, Object> publicJwks() {
+        return state.publicJwks;
+    }
+
+    synchronized void rotate() {
+        try {
+            State previous = state;
+            Instant now = Instant.now();
+            JWK next = previous.next != null ? previous.next : generate();
+            Map<String, Instant> retireAt = new HashMap<>(previous.retireAt);
+            retireAt.put(previous.currentKeyId, now.plus(overlap));
+            Map<String, JWK> keys = new LinkedHashMap<>(previous.keys);
+            keys.put(next.getKeyID(), next);
+            prune(keys, retireAt, now);
+            JWK upcoming = generate();
+            keys.put(upcoming.getKeyID(), upcoming);
+            state = new State(new TokenMinter(next, issuer), next.getKeyID(), upcoming, keys, retireAt);
+            LOG.info("Rotated signing key from {} to {}, next key is {}",
+                    previous.currentKeyId, next.getKeyID(), upcoming.getKeyID());
+            rotated.run();
+            if (!overlap.isZero()) {
+                rotator.schedule(this::pruneRetired, overlap.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to rotate signing key", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        rotator.shutdownNow();
+    }
+
+    private synchronized void pruneRetired() {
+        State current = state;
+        Map<String, Instant> retireAt = new HashMap<>(current.retireAt);
+        Map<String, JWK> keys = new LinkedHashMap<>(current.keys);
+        if (prune(keys, retireAt, Instant.now())) {
+            state = new State(current.current, current.currentKeyId, current.next, keys, retireAt);
+            LOG.info("Stopped publishing retired signing keys, {} keys remain", keys.size());
+        }
+    }
+
+    /**
+     * Drops the keys whose overlap has ended from both maps.
+     *
+     * @return whether any were dropped
+     */
+    private static boolean prune(Map<String, JWK> keys, Map<String, Instant> retireAt, Instant now) {
+        return retireAt.entrySet().removeIf(retiring -> {
+            if (retiring.getValue().isAfter(now)) {
+                return false;
+            }
+            keys.remove(retiring.getKey());
+            return true;
+        });
+    }
+
+    private synchronized void prepareNext() {
+        State current = state;
+        if (current.next != null) {
+            return;
+        }
+        JWK upcoming = generate();
+        Map<String, JWK> keys = new LinkedHashMap<>(current.keys);
+        keys.put(upcoming.getKeyID(), upcoming);
+        state = new State(current.current, current.currentKeyId, upcoming, keys, current.retireAt);
+        LOG.info("Published next signing key {}", upcoming.getKeyID());
+    }
+
+    private JWK generate() {
+        return SigningKeys.generate(algorithm, "signingKey-" + UUID.randomUUID());
+    }
+
+    private static final class State {
+        final TokenMinter current;
+        final String currentKeyId;
+        final JWK next;
+        final Map<String, JWK> keys;
+        final Map<String, Instant> retireAt;
+        final Map<String, Object> publicJwks;
+
+        State(TokenMinter current, String currentKeyId, JWK next, Map<String, JWK> keys, Map<String, Instant> retireAt) {
+            this.current = current;
+            this.currentKeyId = currentKeyId;
+            this.next = next;
+            this.keys = Collections.unmodifiableMap(new LinkedHashMap<>(keys));
+            this.retireAt = Map.copyOf(retireAt);
+            this.publicJwks = frozen(new JWKSet(new ArrayList<>(keys.values())).toPublicJWKSet().toJSONObject());
+        }
+
+        /**
+         * Copies a JSON map into unmodifiable maps and lists all the way down. Order and
+         * null values are kept, which {@code Map.copyOf} would not allow.
+         */
+        private static Map<String, Object> frozen(Map<String, Object> json) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            json.forEach((name, value) -> copy.put(name, frozenValue(value)));
+            return Collections.unmodifiableMap(copy);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Object frozenValue(Object value) {
+            if (value instanceof Map) {
+                return frozen((Map<String, Object>) value);
+            }
+            if (value instanceof List) {
+                List<Object> copy = new ArrayList<>();
+                for (Object element : (List<?>) value) {
+                    copy.add(frozenValue(element));
+                }
+                return Collections.unmodifiableList(copy);
+            }
+            return value;
+        }
+    }
+}
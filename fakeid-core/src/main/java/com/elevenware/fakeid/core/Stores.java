@@ -0,0 +1,192 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.AutoAcceptClientStore;
+import com.elevenware.fakeid.Configuration;
+import com.elevenware.fakeid.ConfigurationException;
+import com.elevenware.fakeid.core.store.ExpiringIssuedGrantStore;
+import com.elevenware.fakeid.core.store.ExpiringPendingGrantStore;
+import com.elevenware.fakeid.core.store.JournaledIssuedGrantStore;
+import com.elevenware.fakeid.core.store.JournaledPendingGrantStore;
+import com.elevenware.fakeid.core.store.MappedIssuedGrantStore;
+import com.elevenware.fakeid.core.store.MappedPendingGrantStore;
+import com.elevenware.fakeid.core.store.RefreshTokenStore;
+import com.elevenware.fakeid.core.store.ShardedIssuedGrantStore;
+import com.elevenware.fakeid.core.store.ShardedPendingGrantStore;
+import com.elevenware.fakeid.core.store.ShardedRefreshTokenStore;
+import com.elevenware.fakeid.core.store.StoreProvider;
+import com.elevenware.fakeid.core.users.DirectoryUserStore;
+import com.elevenware.fakeid.core.users.FileUserDirectory;
+import com.elevenware.fakeid.core.users.SyntheticUserDirectory;
+import com.elevenware.fakeid.core.users.UserDirectory;
+import com.oidc4j.v2.lib.store.ClientStore;
+import com.oidc4j.v2.lib.store.InMemoryUserStore;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+import com.oidc4j.v2.lib.store.UserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The stores a {@link FakeIdCore} runs on. Each one is, in order of preference, the
+ * instance set on the configuration, the one from the named {@link StoreProvider}, or
+ * Fake ID's own default.
+ */
+final class Stores implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Stores.class);
+
+    final ClientStore clients;
+    final UserStore users;
+    final PendingGrantStore pendingGrants;
+    final IssuedGrantStore issuedGrants;
+    final RefreshTokenStore refreshTokens;
+    final UserDirectory directory;
+
+    private Stores(ClientStore clients, UserDirectory directory, UserStore users, RefreshTokenStore refreshTokens,
+                   PendingGrantStore pendingGrants, IssuedGrantStore issuedGrants) {
+        this.clients = clients;
+        this.directory = directory;
+        this.users = users;
+        this.pendingGrants = pendingGrants;
+        this.issuedGrants = issuedGrants;
+        this.refreshTokens = refreshTokens;
+    }
+
+    static Stores resolve(Configuration configuration) {
+        StoreProvider provider = configuration.getStoreProvider() == null
+                ? null
+                : findProvider(configuration.getStoreProvider());
+        ClientStore clients = pick("client", configuration.getClientStore(),
+                provider, p -> p.clientStore(configuration),
+                AutoAcceptClientStore::new);
+        UserDirectory directory = configuration.getUserDirectory() != null
+                ? configuration.getUserDirectory()
+                : configuration.getUsersFile() != null
+                ? FileUserDirectory.load(Path.of(configuration.getUsersFile()))
+                : configuration.getSyntheticUsers() > 0
+                ? new SyntheticUserDirectory(configuration.getSyntheticUserSeed(), configuration.getSyntheticUsers())
+                : null;
+        UserStore users = pick("user", configuration.getUserStore(),
+                provider, p -> p.userStore(configuration),
+                directory != null ? () -> new DirectoryUserStore(directory) : InMemoryUserStore::new);
+        RefreshTokenStore refreshTokens = pick("refresh token", configuration.getRefreshTokenStore(),
+                provider, p -> p.refreshTokenStore(configuration),
+                ShardedRefreshTokenStore::new);
+
+        if (configuration.getGrantStoreDirectory() != null) {
+            if (configuration.getGrantJournalDirectory() != null) {
+                LOG.warn("Ignoring the grant journal, the shared grant store file already outlives restarts");
+            }
+            if (provider != null) {
+                LOG.warn("Using the shared grant store files rather than the grant stores from store provider {}",
+                        provider.name());
+            }
+            Path storeDirectory = createDirectory(configuration.getGrantStoreDirectory());
+            return new Stores(clients, directory, users, refreshTokens,
+                    pick("pending grant", configuration.getPendingGrantStore(), null, null,
+                            () -> new MappedPendingGrantStore(
+                                    storeDirectory.resolve("pending-grants.db"), configuration.getGrantStoreCapacity())),
+                    pick("issued grant", configuration.getIssuedGrantStore(), null, null,
+                            () -> new MappedIssuedGrantStore(
+                                    storeDirectory.resolve("issued-grants.db"), configuration.getGrantStoreCapacity())));
+        }
+        PendingGrantStore pendingGrants = pick("pending grant", configuration.getPendingGrantStore(),
+                provider, p -> p.pendingGrantStore(configuration),
+                configuration.isShardedGrantStores() ? ShardedPendingGrantStore::new : ExpiringPendingGrantStore::new);
+        IssuedGrantStore issuedGrants = pick("issued grant", configuration.getIssuedGrantStore(),
+                provider, p -> p.issuedGrantStore(configuration),
+                configuration.isShardedGrantStores() ? ShardedIssuedGrantStore::new : ExpiringIssuedGrantStore::new);
+        if (configuration.getGrantJournalDirectory() != null) {
+            Path journalDirectory = createDirectory(configuration.getGrantJournalDirectory());
+            Duration compaction = Duration.ofSeconds(configuration.getGrantJournalCompactionSeconds());
+            pendingGrants = new JournaledPendingGrantStore(
+                    pendingGrants, journalDirectory.resolve("pending-grants.journal"), compaction);
+            issuedGrants = new JournaledIssuedGrantStore(
+                    issuedGrants, journalDirectory.resolve("issued-grants.journal"), compaction);
+        }
+        return new Stores(clients, directory, users, refreshTokens, pendingGrants, issuedGrants);
+    }
+
+    @Override
+    public void close() {
+        close(clients);
+        close(users);
+        close(pendingGrants);
+        close(issuedGrants);
+        close(refreshTokens);
+        close(directory);
+    }
+
+    private static StoreProvider findProvider(String name) {
+        for (StoreProvider provider : ServiceLoader.load(StoreProvider.class)) {
+            if (provider.name().equals(name)) {
+                LOG.info("Using {} store provider {}", name, provider.getClass().getName());
+                return provider;
+            }
+        }
+        throw new ConfigurationException("Unknown store provider: " + name);
+    }
+
+    /**
+     * Builds only the store that wins, so stores that hold threads or files aren't
+     * created just to be dropped.
+     */
+    private static <T> T pick(String kind, T configured, StoreProvider provider,
+                              Function<StoreProvider, T> provided, Supplier<T> fallback) {
+        if (configured != null) {
+            if (provider != null) {
+                LOG.warn("Using the configured {} store rather than one from store provider {}", kind, provider.name());
+            }
+            return configured;
+        }
+        T store = provider == null ? null : provided.apply(provider);
+        return store != null ? store : fallback.get();
+    }
+
+    private static Path createDirectory(String directory) {
+        try {
+            return Files.createDirectories(Path.of(directory));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create directory " + directory, e);
+        }
+    }
+
+    private static void close(Object store) {
+        if (store instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) store).close();
+            } catch (Exception e) {
+                LOG.warn("Failed to close {}", store.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
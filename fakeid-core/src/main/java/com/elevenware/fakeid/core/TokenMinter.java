@@ -20,10 +20,20 @@ package com.elevenware.fakeid.core;
  * #L%
  */
 
+import com.elevenware.fakeid.core.dto.IdTokenRequest;
 import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.Ed25519Signer;
+import com.nimbusds.jose.crypto.MACSigner;
 import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
 import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
@@ -31,41 +41,134 @@ import com.nimbusds.jwt.SignedJWT;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public final class TokenMinter {
 
-    private final RSAKey signingKey;
     private final String issuer;
+    private final JWSHeader header;
+    private final JWSHeader accessTokenHeader;
+    private final JWSSigner signer;
 
-    public TokenMinter(RSAKey signingKey, String issuer) {
-        this.signingKey = signingKey;
+    public TokenMinter(JWK signingKey, String issuer) {
         this.issuer = issuer;
+        // The header and signer depend only on the key, so build them once. Nimbus
+        // signers are thread-safe, so a single instance serves every request.
+        this.header = new JWSHeader.Builder(JWSAlgorithm.parse(signingKey.getAlgorithm().getName()))
+                .keyID(signingKey.getKeyID())
+                .build();
+        this.accessTokenHeader = new JWSHeader.Builder(header)
+                .type(new JOSEObjectType("at+jwt"))
+                .build();
+        try {
+            this.signer = signerFor(signingKey);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Failed to load signing key", e);
+        }
+    }
+
+    private static JWSSigner signerFor(JWK signingKey) throws JOSEException {
+        if (signingKey instanceof RSAKey) {
+            return new RSASSASigner(signingKey.toRSAKey().toRSAPrivateKey());
+        }
+        if (signingKey instanceof ECKey) {
+            return new ECDSASigner(signingKey.toECKey());
+        }
+        if (signingKey instanceof OctetKeyPair) {
+            return new Ed25519Signer(signingKey.toOctetKeyPair());
+        }
+        if (signingKey instanceof OctetSequenceKey) {
+            return new MACSigner(signingKey.toOctetSequenceKey());
+        }
+        throw new IllegalStateException("Unsupported signing key type: " + signingKey.getKeyType());
+    }
+
+    public IdTokenTemplate idTokenTemplate(String subject, Map<String, Object> claims) {
+        return idTokenTemplate(subject, claims, ClaimTemplates.NONE);
+    }
+
+    public IdTokenTemplate idTokenTemplate(String subject, Map<String, Object> claims, ClaimTemplates templates) {
+        return new IdTokenTemplate(header, signer, issuer, subject, claims, templates);
     }
 
     public String mintIdToken(String subject, String audience, String nonce, Map<String, Object> claims) {
+        return mintIdToken(subject, audience, nonce, claims, ClaimTemplates.NONE, null);
+    }
+
+    /**
+     * Mints an id_token whose templated claims are worked out for this token, taking
+     * precedence over configured claims of the same name.
+     *
+     * @param authTime when the user signed in; {@code null} means now
+     */
+    public String mintIdToken(String subject, String audience, String nonce, Map<String, Object> claims,
+                              ClaimTemplates templates, Instant authTime) {
         JWTClaimsSet.Builder claimsBuilder = new JWTClaimsSet.Builder();
         for (Map.Entry<String, Object> claim : claims.entrySet()) {
             claimsBuilder.claim(claim.getKey(), claim.getValue());
         }
+        Instant now = Instant.now();
+        if (!templates.isEmpty()) {
+            long issuedAt = now.getEpochSecond();
+            templates.evaluate(new ClaimTemplates.Context(subject, audience,
+                    authTime == null ? issuedAt : authTime.getEpochSecond(), issuedAt), claimsBuilder::claim);
+        }
         claimsBuilder.subject(subject);
         if (nonce != null) {
             claimsBuilder.claim("nonce", nonce);
         }
         claimsBuilder.claim("iss", issuer);
         claimsBuilder.audience(audience);
-        Instant now = Instant.now();
         claimsBuilder.issueTime(Date.from(now));
         claimsBuilder.expirationTime(Date.from(now.plus(1L, ChronoUnit.HOURS)));
-        JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.parse(signingKey.getAlgorithm().getName()))
-                .keyID(signingKey.getKeyID())
-                .build();
         SignedJWT idToken = new SignedJWT(header, claimsBuilder.build());
         try {
-            idToken.sign(new RSASSASigner(signingKey.toRSAPrivateKey()));
+            idToken.sign(signer);
             return idToken.serialize();
         } catch (JOSEException e) {
             throw new IllegalStateException("Failed to sign id_token", e);
         }
     }
+
+    /**
+     * Mints a JWT access token following the RFC 9068 profile. Fake ID has no notion of
+     * resource servers, so the audience is the client the token was issued to.
+     */
+    public String mintAccessToken(String subject, String clientId, Set<String> scopes) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .subject(subject)
+                .audience(clientId)
+                .claim("client_id", clientId)
+                .claim("scope", ScopeSet.join(scopes))
+                .jwtID(UUID.randomUUID().toString())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(1L, ChronoUnit.HOURS)))
+                .build();
+        SignedJWT accessToken = new SignedJWT(accessTokenHeader, claims);
+        try {
+            accessToken.sign(signer);
+            return accessToken.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Failed to sign access_token", e);
+        }
+    }
+
+    public List<String> mintIdTokens(List<IdTokenRequest> requests) {
+        return OrderedBatch.collect(requests, this::mintIdToken);
+    }
+
+    public void mintIdTokens(List<IdTokenRequest> requests, Executor executor, int maxInFlight, Consumer<String> sink) {
+        OrderedBatch.run(requests, this::mintIdToken, executor, maxInFlight, sink);
+    }
+
+    private String mintIdToken(IdTokenRequest request) {
+        return mintIdToken(request.subject(), request.audience(), request.nonce(), request.claims());
+    }
 }
@@ -0,0 +1,153 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pre-mints tokens that don't depend on anything in the request beyond their key,
+ * such as id_tokens for requests without a nonce. A single background thread keeps
+ * each key topped up to the watermark, so a burst of requests is served by polling
+ * a queue rather than signing. Tokens older than {@code maxAge} are discarded rather
+ * than handed out, so relying parties never see an {@code iat} far in the past or a
+ * token close to its expiry. A key nothing has been taken from for {@code maxAge} is
+ * dropped, so clients and scope strings seen once don't cost signing work forever.
+ */
+final class TokenPool implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TokenPool.class);
+
+    private final int watermark;
+    private final long maxAgeMillis;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refiller;
+
+    TokenPool(int watermark, Duration maxAge) {
+        this.watermark = watermark;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.refiller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fakeid-token-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMillis = Math.max(1L, maxAgeMillis / 2);
+        refiller.scheduleWithFixedDelay(this::refillAll, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    String take(String key, Supplier<String> minter) {
+        Slot slot = slots.computeIfAbsent(key, k -> new Slot(minter));
+        long now = System.currentTimeMillis();
+        slot.lastTakenAt = now;
+        long oldest = now - maxAgeMillis;
+        Pooled pooled;
+        while ((pooled = slot.tokens.poll()) != null) {
+            slot.size.decrementAndGet();
+            if (pooled.mintedAt > oldest) {
+                requestRefill(slot);
+                return pooled.value;
+            }
+        }
+        requestRefill(slot);
+        return minter.get();
+    }
+
+    /**
+     * Drops every pooled token, so nothing signed before now is handed out.
+     */
+    void clear() {
+        slots.clear();
+    }
+
+    int available(String key) {
+        Slot slot = slots.get(key);
+        return slot == null ? 0 : slot.size.get();
+    }
+
+    @Override
+    public void close() {
+        refiller.shutdownNow();
+    }
+
+    private void requestRefill(Slot slot) {
+        if (slot.size.get() < watermark && slot.refilling.compareAndSet(false, true)) {
+            try {
+                refiller.execute(() -> refill(slot));
+            } catch (RejectedExecutionException e) {
+                slot.refilling.set(false);
+            }
+        }
+    }
+
+    private void refillAll() {
+        long idleSince = System.currentTimeMillis() - maxAgeMillis;
+        slots.values().removeIf(slot -> slot.lastTakenAt < idleSince);
+        slots.values().forEach(this::refill);
+    }
+
+    private void refill(Slot slot) {
+        try {
+            long oldest = System.currentTimeMillis() - maxAgeMillis;
+            Pooled head;
+            while ((head = slot.tokens.peek()) != null && head.mintedAt <= oldest) {
+                if (slot.tokens.remove(head)) {
+                    slot.size.decrementAndGet();
+                }
+            }
+            while (slot.size.get() < watermark && !Thread.currentThread().isInterrupted()) {
+                slot.tokens.add(new Pooled(slot.minter.get(), System.currentTimeMillis()));
+                slot.size.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to refill token pool", e);
+        } finally {
+            slot.refilling.set(false);
+        }
+    }
+
+    private static final class Slot {
+        final Supplier<String> minter;
+        final Queue<Pooled> tokens = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicBoolean refilling = new AtomicBoolean();
+        volatile long lastTakenAt = System.currentTimeMillis();
+
+        Slot(Supplier<String> minter) {
+            this.minter = minter;
+        }
+    }
+
+    private record Pooled(String value, long mintedAt) {
+    }
+}
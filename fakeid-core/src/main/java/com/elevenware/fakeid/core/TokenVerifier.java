@@ -0,0 +1,158 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.core.error.InvalidTokenException;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Checks tokens minted by {@link TokenMinter} against the configured JWKS. Verifiers
+ * are built once per {@code kid} and reused, as building one means converting the
+ * JWK to a JCA key.
+ */
+final class TokenVerifier {
+
+    private static final JOSEObjectType ACCESS_TOKEN_TYPE = new JOSEObjectType("at+jwt");
+
+    private final Function<String, JWK> keys;
+    private final String issuer;
+    private final Map<String, JWSVerifier> verifiers = new ConcurrentHashMap<>();
+
+    TokenVerifier(Function<String, JWK> keys, String issuer) {
+        this.keys = keys;
+        this.issuer = issuer;
+    }
+
+    JWTClaimsSet verifyIdToken(String token, String audience, String nonce) {
+        SignedJWT jwt = verifySignature(token);
+        if (ACCESS_TOKEN_TYPE.equals(jwt.getHeader().getType())) {
+            throw new InvalidTokenException("token is an access token, not an id_token");
+        }
+        JWTClaimsSet claims = verifyIssuerAndExpiry(jwt);
+        if (audience != null && (claims.getAudience() == null || !claims.getAudience().contains(audience))) {
+            throw new InvalidTokenException("id_token audience does not include " + audience);
+        }
+        if (nonce != null && !nonce.equals(claims.getClaim("nonce"))) {
+            throw new InvalidTokenException("id_token nonce does not match");
+        }
+        return claims;
+    }
+
+    JWTClaimsSet verifyAccessToken(String token) {
+        SignedJWT jwt = verifySignature(token);
+        if (!ACCESS_TOKEN_TYPE.equals(jwt.getHeader().getType())) {
+            throw new InvalidTokenException("token is not an at+jwt access token");
+        }
+        return verifyIssuerAndExpiry(jwt);
+    }
+
+    private SignedJWT verifySignature(String token) {
+        try {
+            SignedJWT jwt = SignedJWT.parse(token);
+            JWSVerifier verifier = verifierFor(jwt.getHeader().getKeyID());
+            if (verifier == null) {
+                throw new InvalidTokenException("unknown signing key " + jwt.getHeader().getKeyID());
+            }
+            if (!jwt.verify(verifier)) {
+                throw new InvalidTokenException("signature verification failed");
+            }
+            return jwt;
+        } catch (ParseException e) {
+            throw new InvalidTokenException("token is not a signed JWT");
+        } catch (JOSEException e) {
+            throw new InvalidTokenException("signature verification failed: " + e.getMessage());
+        }
+    }
+
+    private JWTClaimsSet verifyIssuerAndExpiry(SignedJWT jwt) {
+        JWTClaimsSet claims;
+        try {
+            claims = jwt.getJWTClaimsSet();
+        } catch (ParseException e) {
+            throw new InvalidTokenException("token claims are not valid JSON");
+        }
+        if (!issuer.equals(claims.getIssuer())) {
+            throw new InvalidTokenException("token was not issued by " + issuer);
+        }
+        if (claims.getExpirationTime() == null || !claims.getExpirationTime().after(new Date())) {
+            throw new InvalidTokenException("token has expired");
+        }
+        return claims;
+    }
+
+    private JWSVerifier verifierFor(String keyId) {
+        if (keyId == null) {
+            return null;
+        }
+        JWK key = keys.apply(keyId);
+        if (key == null) {
+            // retired keys stop verifying once they leave the published set
+            verifiers.remove(keyId);
+            return null;
+        }
+        JWSVerifier cached = verifiers.get(keyId);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            JWSVerifier verifier = verifierFor(key);
+            verifiers.putIfAbsent(keyId, verifier);
+            return verifier;
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Failed to load verification key " + keyId, e);
+        }
+    }
+
+    private static JWSVerifier verifierFor(JWK key) throws JOSEException {
+        if (key instanceof RSAKey) {
+            return new RSASSAVerifier(key.toRSAKey().toPublicJWK());
+        }
+        if (key instanceof ECKey) {
+            return new ECDSAVerifier(key.toECKey().toPublicJWK());
+        }
+        if (key instanceof OctetKeyPair) {
+            return new Ed25519Verifier(key.toOctetKeyPair().toPublicJWK());
+        }
+        if (key instanceof OctetSequenceKey) {
+            return new MACVerifier(key.toOctetSequenceKey());
+        }
+        throw new IllegalStateException("Unsupported verification key type: " + key.getKeyType());
+    }
+}
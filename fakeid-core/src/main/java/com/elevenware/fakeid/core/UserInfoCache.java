@@ -0,0 +1,90 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.core.dto.UserInfoResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Serialized userinfo responses, kept per subject and set of granted scopes. Claims
+ * never change while Fake ID runs, so a response can be reused for as long as it
+ * stays in the cache. The cache is a fixed table that each subject and scope set
+ * hashes to one slot of; a new entry replaces whatever held its slot, which bounds
+ * memory without locking.
+ */
+final class UserInfoCache {
+
+    private static final int SLOTS = 1024;
+    // like the server's mapper, claims without a value are left out
+    private static final ObjectWriter WRITER = new ObjectMapper()
+            .setDefaultPropertyInclusion(JsonInclude.Value.construct(
+                    JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL))
+            .writer();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(SLOTS);
+
+    /**
+     * The response for {@code subject} and {@code scopes}, serializing the claims
+     * {@code claims} supplies if it isn't cached.
+     */
+    UserInfoResponse get(String subject, ScopeSet scopes, Supplier<Map<String, Object>> claims) {
+        int hash = Objects.hash(subject, scopes) * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+        Entry entry = entries.get(slot);
+        if (entry != null && Objects.equals(entry.subject, subject) && entry.scopes.equals(scopes)) {
+            return entry.response;
+        }
+        UserInfoResponse response = serialize(claims.get());
+        entries.set(slot, new Entry(subject, scopes, response));
+        return response;
+    }
+
+    static UserInfoResponse serialize(Map<String, Object> claims) {
+        byte[] body;
+        try {
+            body = WRITER.writeValueAsBytes(claims);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize userinfo", e);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return new UserInfoResponse(body, "\"" + ENCODER.encodeToString(Arrays.copyOf(digest, 16)) + "\"");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Entry(String subject, ScopeSet scopes, UserInfoResponse response) {
+    }
+}
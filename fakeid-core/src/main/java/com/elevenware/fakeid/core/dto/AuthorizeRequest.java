@@ -28,5 +28,11 @@ public record AuthorizeRequest(
         String responseType,
         Set<String> scopes,
         String state,
-        String nonce) {
+        String nonce,
+        String loginHint) {
+
+    public AuthorizeRequest(String clientId, String redirectUri, String responseType, Set<String> scopes,
+                            String state, String nonce) {
+        this(clientId, redirectUri, responseType, scopes, state, nonce, null);
+    }
 }
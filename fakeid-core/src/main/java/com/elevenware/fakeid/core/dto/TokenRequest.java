@@ -25,5 +25,10 @@ public record TokenRequest(
         String code,
         String scope,
         String clientId,
-        String clientSecret) {
+        String clientSecret,
+        String refreshToken) {
+
+    public TokenRequest(String grantType, String code, String scope, String clientId, String clientSecret) {
+        this(grantType, code, scope, clientId, clientSecret, null);
+    }
 }
@@ -28,7 +28,8 @@ public record TokenResponse(
         long issuedAt,
         String clientId,
         String grantType,
-        String idToken) {
+        String idToken,
+        String refreshToken) {
 
     @Override
     public String toString() {
@@ -41,6 +42,7 @@ public record TokenResponse(
                 ", clientId=" + clientId +
                 ", grantType=" + grantType +
                 ", idToken=" + (idToken == null ? null : "[REDACTED]") +
+                ", refreshToken=" + (refreshToken == null ? null : "[REDACTED]") +
                 "]";
     }
 }
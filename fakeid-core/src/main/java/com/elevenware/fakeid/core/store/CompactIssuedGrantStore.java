@@ -0,0 +1,436 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An {@link IssuedGrantStore} for holding millions of grants in a small heap. Grants
+ * are kept as rows of primitive columns rather than objects: times are int seconds,
+ * client ids, grant types and scope sets are interned, and the access token, grant id,
+ * refresh token and subject are packed into one byte arena. An {@link IssuedGrant} is
+ * only built when a grant is read back.
+ * <p>
+ * Times are held to the second, so a grant comes back with its sub-second part
+ * dropped and expires up to a second early. Expired rows are reclaimed when the table
+ * next fills up, and the interned values are rebuilt from the live rows at the same
+ * time, so values only expired grants used are dropped.
+ */
+public final class CompactIssuedGrantStore implements IssuedGrantStore {
+
+    private static final int INITIAL_ROWS = 1024;
+    private static final int DEAD = Integer.MIN_VALUE;
+    private static final byte UUID_ID = 0;
+    private static final byte STRING_ID = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final long epoch = Instant.now().getEpochSecond();
+    private Interner<String> names = new Interner<>();
+    private Interner<Set<String>> scopeSets = new Interner<>();
+
+    private int[] slots;
+    private int[] hashes;
+    private int[] records;
+    private int[] issuedAt;
+    private int[] expiresAt;
+    private int[] clientIds;
+    private int[] grantTypes;
+    private int[] scopes;
+    private byte[] arena;
+    private int rows;
+    private int arenaLength;
+
+    public CompactIssuedGrantStore() {
+        allocate(INITIAL_ROWS, INITIAL_ROWS * 64);
+    }
+
+    @Override
+    public void save(IssuedGrant grant) {
+        byte[] token = grant.getAccessToken().getBytes(StandardCharsets.UTF_8);
+        byte[] record = record(token, grant.getId(), grant.getRefreshToken(), SubjectIssuedGrant.subjectOf(grant));
+        int hash = hash(token);
+        lock.writeLock().lock();
+        try {
+            if (rows == records.length || arenaLength + record.length > arena.length) {
+                reclaim(record.length);
+            }
+            int row = rows++;
+            System.arraycopy(record, 0, arena, arenaLength, record.length);
+            records[row] = arenaLength;
+            arenaLength += record.length;
+            hashes[row] = hash;
+            issuedAt[row] = seconds(grant.getIssuedAt());
+            expiresAt[row] = seconds(grant.getExpiresAt());
+            clientIds[row] = names.intern(grant.getClientId());
+            grantTypes[row] = names.intern(grant.getGrantType());
+            scopes[row] = scopeSets.intern(Set.copyOf(grant.getGrantedScopes()));
+            index(row, token);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<IssuedGrant> findByAccessToken(String accessToken) {
+        byte[] token = accessToken.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(token);
+        int now = seconds(Instant.now());
+        lock.readLock().lock();
+        try {
+            int row = find(hash, token);
+            if (row < 0 || expiresAt[row] <= now) {
+                return Optional.empty();
+            }
+            return Optional.of(materialize(row, accessToken, token.length));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        int now = seconds(Instant.now());
+        lock.readLock().lock();
+        try {
+            int live = 0;
+            for (int row = 0; row < rows; row++) {
+                if (expiresAt[row] > now) {
+                    live++;
+                }
+            }
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * How many client ids, grant types and scope sets are interned.
+     */
+    int internedValues() {
+        lock.readLock().lock();
+        try {
+            return names.size() + scopeSets.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private IssuedGrant materialize(int row, String accessToken, int tokenLength) {
+        int position = records[row];
+        position = skipVarint(position) + tokenLength;
+        String id;
+        if (arena[position++] == UUID_ID) {
+            id = new UUID(readLong(position), readLong(position + 8)).toString();
+            position += 16;
+        } else {
+            int length = readVarint(position);
+            position = skipVarint(position);
+            id = new String(arena, position, length, StandardCharsets.UTF_8);
+            position += length;
+        }
+        String refreshToken = readOptional(position);
+        position = skipVarint(position) + Math.max(0, readVarint(position) - 1);
+        String subject = readOptional(position);
+        if (subject == null) {
+            return new IssuedGrant(
+                    id,
+                    names.value(clientIds[row]),
+                    names.value(grantTypes[row]),
+                    scopeSets.value(scopes[row]),
+                    accessToken,
+                    refreshToken,
+                    instant(issuedAt[row]),
+                    instant(expiresAt[row]));
+        }
+        return new SubjectIssuedGrant(
+                id,
+                names.value(clientIds[row]),
+                names.value(grantTypes[row]),
+                scopeSets.value(scopes[row]),
+                accessToken,
+                refreshToken,
+                subject,
+                instant(issuedAt[row]),
+                instant(expiresAt[row]));
+    }
+
+    private int find(int hash, byte[] token) {
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (row < 0) {
+                return -1;
+            }
+            if (hashes[row] == hash && tokenMatches(row, token)) {
+                return row;
+            }
+        }
+    }
+
+    private void index(int row, byte[] token) {
+        int mask = slots.length - 1;
+        for (int slot = hashes[row] & mask; ; slot = (slot + 1) & mask) {
+            int existing = slots[slot] - 1;
+            if (existing < 0) {
+                slots[slot] = row + 1;
+                return;
+            }
+            if (hashes[existing] == hashes[row] && tokenMatches(existing, token)) {
+                expiresAt[existing] = DEAD;
+                slots[slot] = row + 1;
+                return;
+            }
+        }
+    }
+
+    private boolean tokenMatches(int row, byte[] token) {
+        int position = records[row];
+        if (readVarint(position) != token.length) {
+            return false;
+        }
+        int start = skipVarint(position);
+        return Arrays.equals(arena, start, start + token.length, token, 0, token.length);
+    }
+
+    /**
+     * Copies the live rows into fresh columns, growing them if the live rows would
+     * otherwise fill more than half of the table, and re-interns their values.
+     */
+    private void reclaim(int incomingBytes) {
+        int now = seconds(Instant.now());
+        int live = 0;
+        long liveBytes = incomingBytes;
+        for (int row = 0; row < rows; row++) {
+            if (expiresAt[row] > now) {
+                live++;
+                liveBytes += recordLength(row);
+            }
+        }
+        int rowCapacity = records.length;
+        while (live + 1 > rowCapacity / 2) {
+            rowCapacity <<= 1;
+        }
+        long arenaCapacity = arena.length;
+        while (liveBytes > arenaCapacity / 2) {
+            arenaCapacity <<= 1;
+        }
+        if (arenaCapacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Compact grant store is full");
+        }
+
+        int[] oldRecords = records;
+        int[] oldHashes = hashes;
+        int[] oldIssuedAt = issuedAt;
+        int[] oldExpiresAt = expiresAt;
+        int[] oldClientIds = clientIds;
+        int[] oldGrantTypes = grantTypes;
+        int[] oldScopes = scopes;
+        byte[] oldArena = arena;
+        Interner<String> oldNames = names;
+        Interner<Set<String>> oldScopeSets = scopeSets;
+        int oldRows = rows;
+        int[] oldLengths = new int[oldRows];
+        for (int row = 0; row < oldRows; row++) {
+            oldLengths[row] = recordLength(row);
+        }
+
+        allocate(rowCapacity, (int) arenaCapacity);
+        names = new Interner<>();
+        scopeSets = new Interner<>();
+        for (int old = 0; old < oldRows; old++) {
+            if (oldExpiresAt[old] <= now) {
+                continue;
+            }
+            int row = rows++;
+            System.arraycopy(oldArena, oldRecords[old], arena, arenaLength, oldLengths[old]);
+            records[row] = arenaLength;
+            arenaLength += oldLengths[old];
+            hashes[row] = oldHashes[old];
+            issuedAt[row] = oldIssuedAt[old];
+            expiresAt[row] = oldExpiresAt[old];
+            clientIds[row] = names.intern(oldNames.value(oldClientIds[old]));
+            grantTypes[row] = names.intern(oldNames.value(oldGrantTypes[old]));
+            scopes[row] = scopeSets.intern(oldScopeSets.value(oldScopes[old]));
+            int mask = slots.length - 1;
+            int slot = hashes[row] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = row + 1;
+        }
+    }
+
+    private void allocate(int rowCapacity, int arenaCapacity) {
+        slots = new int[rowCapacity * 2];
+        hashes = new int[rowCapacity];
+        records = new int[rowCapacity];
+        issuedAt = new int[rowCapacity];
+        expiresAt = new int[rowCapacity];
+        clientIds = new int[rowCapacity];
+        grantTypes = new int[rowCapacity];
+        scopes = new int[rowCapacity];
+        arena = new byte[arenaCapacity];
+        rows = 0;
+        arenaLength = 0;
+    }
+
+    private int recordLength(int row) {
+        int end = row + 1 < rows ? records[row + 1] : arenaLength;
+        return end - records[row];
+    }
+
+    private int seconds(Instant instant) {
+        long seconds = instant.getEpochSecond() - epoch;
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE, seconds));
+    }
+
+    private Instant instant(int seconds) {
+        return Instant.ofEpochSecond(epoch + seconds);
+    }
+
+    /**
+     * Lays out a grant's strings: the token, then the id as 16 bytes when it is a UUID
+     * or as a string otherwise, then the refresh token and the subject. Lengths are
+     * varints, and the refresh token's and subject's are offset by one so that zero
+     * means there isn't one.
+     */
+    private static byte[] record(byte[] token, String id, String refreshToken, String subject) {
+        UUID uuid = uuidOf(id);
+        byte[] idBytes = uuid == null ? id.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] refresh = refreshToken == null ? null : refreshToken.getBytes(StandardCharsets.UTF_8);
+        byte[] subjectBytes = subject == null ? null : subject.getBytes(StandardCharsets.UTF_8);
+        int length = varintLength(token.length) + token.length + 1
+                + (uuid != null ? 16 : varintLength(idBytes.length) + idBytes.length)
+                + optionalLength(refresh)
+                + optionalLength(subjectBytes);
+        byte[] record = new byte[length];
+        int position = writeVarint(record, 0, token.length);
+        System.arraycopy(token, 0, record, position, token.length);
+        position += token.length;
+        if (uuid != null) {
+            record[position++] = UUID_ID;
+            position = writeLong(record, position, uuid.getMostSignificantBits());
+            position = writeLong(record, position, uuid.getLeastSignificantBits());
+        } else {
+            record[position++] = STRING_ID;
+            position = writeVarint(record, position, idBytes.length);
+            System.arraycopy(idBytes, 0, record, position, idBytes.length);
+            position += idBytes.length;
+        }
+        position = writeOptional(record, position, refresh);
+        writeOptional(record, position, subjectBytes);
+        return record;
+    }
+
+    private static int optionalLength(byte[] value) {
+        return value == null ? 1 : varintLength(value.length + 1) + value.length;
+    }
+
+    private static int writeOptional(byte[] record, int position, byte[] value) {
+        if (value == null) {
+            return writeVarint(record, position, 0);
+        }
+        position = writeVarint(record, position, value.length + 1);
+        System.arraycopy(value, 0, record, position, value.length);
+        return position + value.length;
+    }
+
+    private static UUID uuidOf(String id) {
+        if (id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int hash(byte[] token) {
+        int hash = Arrays.hashCode(token) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private int readVarint(int position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = arena[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private String readOptional(int position) {
+        int length = readVarint(position) - 1;
+        return length < 0 ? null : new String(arena, skipVarint(position), length, StandardCharsets.UTF_8);
+    }
+
+    private int skipVarint(int position) {
+        while (arena[position++] < 0) {
+            // continuation byte
+        }
+        return position;
+    }
+
+    private long readLong(int position) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (arena[position + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeVarint(byte[] target, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    private static int writeLong(byte[] target, int position, long value) {
+        for (int i = 7; i >= 0; i--) {
+            target[position++] = (byte) (value >>> (i * 8));
+        }
+        return position;
+    }
+}
@@ -0,0 +1,99 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link IssuedGrantStore} that drops grants once their access token expires. Expired
+ * grants are never returned, and a background timing wheel removes them so a
+ * long-running instance doesn't grow without bound.
+ */
+public final class ExpiringIssuedGrantStore implements IssuedGrantStore, AutoCloseable {
+
+    private final Map<String, IssuedGrant> grants = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+    private final Clock clock;
+    private final ExpiryWheel<IssuedGrant> wheel;
+
+    public ExpiringIssuedGrantStore() {
+        this(Clock.systemUTC());
+        wheel.start("fakeid-issued-grant-expiry");
+    }
+
+    ExpiringIssuedGrantStore(Clock clock) {
+        this.clock = clock;
+        this.wheel = new ExpiryWheel<>(clock, Duration.ofSeconds(1), 4096, this::evict);
+    }
+
+    @Override
+    public void save(IssuedGrant grant) {
+        grants.put(grant.getAccessToken(), grant);
+        wheel.schedule(grant, grant.getExpiresAt());
+    }
+
+    @Override
+    public Optional<IssuedGrant> findByAccessToken(String accessToken) {
+        IssuedGrant grant = grants.get(accessToken);
+        if (grant == null) {
+            return Optional.empty();
+        }
+        if (!grant.getExpiresAt().isAfter(clock.instant())) {
+            evict(grant);
+            return Optional.empty();
+        }
+        return Optional.of(grant);
+    }
+
+    /**
+     * The number of grants removed because they expired.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return grants.size();
+    }
+
+    void expire() {
+        wheel.advance();
+    }
+
+    @Override
+    public void close() {
+        wheel.close();
+    }
+
+    private void evict(IssuedGrant grant) {
+        if (grants.remove(grant.getAccessToken(), grant)) {
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.PendingGrant;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link PendingGrantStore} that drops authorization codes that are never redeemed
+ * once they expire. An expired code can't be consumed.
+ */
+public final class ExpiringPendingGrantStore implements PendingGrantStore, AutoCloseable {
+
+    private final Map<String, PendingGrant> grants = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+    private final Clock clock;
+    private final ExpiryWheel<PendingGrant> wheel;
+
+    public ExpiringPendingGrantStore() {
+        this(Clock.systemUTC());
+        wheel.start("fakeid-pending-grant-expiry");
+    }
+
+    ExpiringPendingGrantStore(Clock clock) {
+        this.clock = clock;
+        this.wheel = new ExpiryWheel<>(clock, Duration.ofSeconds(1), 1024, this::evict);
+    }
+
+    @Override
+    public void save(PendingGrant grant) {
+        grants.put(grant.getCode(), grant);
+        wheel.schedule(grant, grant.getExpiresAt());
+    }
+
+    @Override
+    public Optional<PendingGrant> consume(String code) {
+        PendingGrant grant = grants.remove(code);
+        if (grant == null) {
+            return Optional.empty();
+        }
+        if (!grant.getExpiresAt().isAfter(clock.instant())) {
+            evictions.increment();
+            return Optional.empty();
+        }
+        return Optional.of(grant);
+    }
+
+    /**
+     * The number of codes removed because they expired before being redeemed.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return grants.size();
+    }
+
+    void expire() {
+        wheel.advance();
+    }
+
+    @Override
+    public void close() {
+        wheel.close();
+    }
+
+    private void evict(PendingGrant grant) {
+        if (grants.remove(grant.getCode(), grant)) {
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel. Each tick only looks at the one slot whose deadlines fall due,
+ * so expiring entries costs time proportional to what expires rather than to the size
+ * of the store. Entries due further out than one turn of the wheel stay in their slot
+ * and are looked at again on the next turn.
+ */
+final class ExpiryWheel<T> implements AutoCloseable {
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final Slot<T>[] slots;
+    private final Consumer<T> expire;
+    private final ReentrantLock advancing = new ReentrantLock();
+    private volatile long processedTick;
+    private ScheduledExecutorService ticker;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ExpiryWheel(Clock clock, Duration tick, int slotCount, Consumer<T> expire) {
+        this.clock = clock;
+        this.tickMillis = tick.toMillis();
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot<>();
+        }
+        this.expire = expire;
+        this.processedTick = tickOf(clock.instant());
+    }
+
+    void start(String threadName) {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void schedule(T item, Instant deadline) {
+        // something already due goes in the next slot to be processed
+        long tick = Math.max(tickOf(deadline), processedTick + 1);
+        slots[(int) (tick % slots.length)].add(new Entry<>(item, tick));
+    }
+
+    void advance() {
+        advancing.lock();
+        try {
+            long now = tickOf(clock.instant());
+            long from = Math.max(processedTick + 1, now - slots.length + 1);
+            for (long tick = from; tick <= now; tick++) {
+                Slot<T> slot = slots[(int) (tick % slots.length)];
+                for (Entry<T> entry : slot.drain()) {
+                    if (entry.tick <= now) {
+                        expire.accept(entry.item);
+                    } else {
+                        slot.add(entry);
+                    }
+                }
+            }
+            processedTick = Math.max(processedTick, now);
+        } finally {
+            advancing.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    private long tickOf(Instant instant) {
+        return Math.floorDiv(instant.toEpochMilli(), tickMillis);
+    }
+
+    private record Entry<T>(T item, long tick) {
+    }
+
+    private static final class Slot<T> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private List<Entry<T>> entries = new ArrayList<>();
+
+        void add(Entry<T> entry) {
+            lock.lock();
+            try {
+                entries.add(entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<Entry<T>> drain() {
+            lock.lock();
+            try {
+                List<Entry<T>> drained = entries;
+                entries = new ArrayList<>();
+                return drained;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.PendingGrant;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Binary encoding of grants for the stores that keep them outside the heap.
+ */
+final class GrantCodec {
+
+    private GrantCodec() {
+    }
+
+    static byte[] encode(IssuedGrant grant) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, grant.getId());
+            writeString(out, grant.getClientId());
+            writeString(out, grant.getGrantType());
+            writeScopes(out, grant.getGrantedScopes());
+            writeString(out, grant.getAccessToken());
+            writeString(out, grant.getRefreshToken());
+            out.writeLong(grant.getIssuedAt().toEpochMilli());
+            out.writeLong(grant.getExpiresAt().toEpochMilli());
+            writeString(out, SubjectIssuedGrant.subjectOf(grant));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static IssuedGrant decodeIssuedGrant(byte[] encoded) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            String id = readString(in);
+            String clientId = readString(in);
+            String grantType = readString(in);
+            Set<String> scopes = readScopes(in);
+            String accessToken = readString(in);
+            String refreshToken = readString(in);
+            Instant issuedAt = Instant.ofEpochMilli(in.readLong());
+            Instant expiresAt = Instant.ofEpochMilli(in.readLong());
+            String subject = readString(in);
+            if (subject == null) {
+                return new IssuedGrant(id, clientId, grantType, scopes, accessToken, refreshToken, issuedAt, expiresAt);
+            }
+            return new SubjectIssuedGrant(id, clientId, grantType, scopes, accessToken, refreshToken, subject,
+                    issuedAt, expiresAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] encode(PendingGrant grant) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, grant.getCode());
+            writeString(out, grant.getClientId());
+            writeString(out, grant.getSubject());
+            writeScopes(out, grant.getConsentedScopes());
+            writeString(out, grant.getRedirectUri());
+            writeString(out, NoncePendingGrant.nonceOf(grant));
+            out.writeLong(grant.getCreatedAt().toEpochMilli());
+            out.writeLong(grant.getExpiresAt().toEpochMilli());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Pending grants are only saved once consent is given, so every decoded grant is
+     * marked as granted.
+     */
+    static PendingGrant decodePendingGrant(byte[] encoded) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            NoncePendingGrant grant = new NoncePendingGrant(
+                    readString(in),
+                    readString(in),
+                    readString(in),
+                    readScopes(in),
+                    readString(in),
+                    readString(in),
+                    Instant.ofEpochMilli(in.readLong()),
+                    Instant.ofEpochMilli(in.readLong()));
+            grant.grant();
+            return grant;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeScopes(DataOutputStream out, Set<String> scopes) throws IOException {
+        Set<String> values = scopes == null ? Set.of() : scopes;
+        out.writeShort(values.size());
+        for (String scope : values) {
+            out.writeUTF(scope);
+        }
+    }
+
+    private static Set<String> readScopes(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        Set<String> scopes = new LinkedHashSet<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            scopes.add(in.readUTF());
+        }
+        return Set.copyOf(scopes);
+    }
+}
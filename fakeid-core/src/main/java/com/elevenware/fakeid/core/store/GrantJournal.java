@@ -0,0 +1,318 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * An append-only journal of grant saves and removals, written behind the in-memory
+ * stores so that outstanding codes and tokens survive a restart.
+ * <p>
+ * Appends are queued and a single writer thread drains whatever has accumulated into one
+ * write followed by one fsync, so a burst of saves shares the cost of a sync. The queue is
+ * bounded, so if the disk falls behind, callers wait for room rather than growing the heap. Replay
+ * only hands back records that are neither removed nor expired. The writer periodically
+ * rewrites the journal with just those records, which keeps replay time bounded by the
+ * number of live grants rather than by uptime. The rewrite is moved over the journal
+ * before the writer switches to it, so a failed compaction leaves the old journal in use.
+ * <pre>
+ * record: type(1) expiresAtMillis(8) keyLength(4) valueLength(4) key value
+ * </pre>
+ */
+final class GrantJournal implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GrantJournal.class);
+    private static final byte SAVE = 1;
+    private static final byte REMOVE = 2;
+    private static final int RECORD_HEADER_BYTES = 17;
+    private static final int MAX_BATCH = 4096;
+    private static final int MAX_QUEUED = 4 * MAX_BATCH;
+
+    private final Path file;
+    private final long compactionIntervalMillis;
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>(MAX_QUEUED);
+    private final Thread writer;
+    private FileChannel channel;
+    private long nextCompaction;
+    private volatile boolean compactionRequested;
+    private volatile long compactions;
+    private volatile boolean running = true;
+
+    GrantJournal(Path file, Duration compactionInterval) {
+        this.file = file;
+        this.compactionIntervalMillis = compactionInterval.toMillis();
+        this.nextCompaction = System.currentTimeMillis() + compactionIntervalMillis;
+        this.writer = new Thread(this::writeLoop, "fakeid-grant-journal-" + file.getFileName());
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Replays the live records and then starts accepting appends. Call once, before
+     * anything is appended.
+     */
+    void open(BiConsumer<String, byte[]> live) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Map<String, Record> records = read();
+            records.values().forEach(record -> live.accept(record.key, record.value));
+            LOG.info("Replayed {} live grants from {}", records.size(), file);
+            compact(records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open grant journal " + file, e);
+        }
+        writer.start();
+    }
+
+    void save(String key, long expiresAtMillis, byte[] value) {
+        enqueue(new Record(SAVE, expiresAtMillis, key, value));
+    }
+
+    void remove(String key) {
+        enqueue(new Record(REMOVE, 0L, key, new byte[0]));
+    }
+
+    private void enqueue(Record record) {
+        try {
+            while (!queue.offer(record, 100, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    throw new IllegalStateException("Grant journal " + file + " is closed");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to write to grant journal " + file, e);
+        }
+    }
+
+    /**
+     * Compacts as soon as everything queued so far has been written, rather than at the
+     * next interval, and waits up to {@code timeout} for it to finish.
+     *
+     * @return whether a compaction finished in time
+     */
+    boolean compactNow(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!queue.isEmpty()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        long finished = compactions;
+        compactionRequested = true;
+        while (compactions == finished) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLoop() {
+        List<Record> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Record first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    append(batch);
+                    batch.clear();
+                }
+                if (compactionRequested || System.currentTimeMillis() >= nextCompaction) {
+                    compactionRequested = false;
+                    compact(read());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Failed to write grant journal {}", file, e);
+                batch.clear();
+            }
+        }
+    }
+
+    private void append(List<Record> batch) throws IOException {
+        int size = 0;
+        for (Record record : batch) {
+            size += record.size();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Record record : batch) {
+            record.writeTo(buffer);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private Map<String, Record> read() throws IOException {
+        Map<String, Record> live = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        long position = 0;
+        long length = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        while (position + RECORD_HEADER_BYTES <= length) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            byte type = header.get();
+            long expiresAt = header.getLong();
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            if ((type != SAVE && type != REMOVE) || keyLength < 0 || valueLength < 0
+                    || position + RECORD_HEADER_BYTES + keyLength + valueLength > length) {
+                LOG.warn("Ignoring incomplete record at {} in {}", position, file);
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(keyLength + valueLength);
+            readFully(body, position + RECORD_HEADER_BYTES);
+            String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+            if (type == REMOVE || expiresAt <= now) {
+                live.remove(key);
+            } else {
+                byte[] value = new byte[valueLength];
+                System.arraycopy(body.array(), keyLength, value, 0, valueLength);
+                live.put(key, new Record(SAVE, expiresAt, key, value));
+            }
+            position += RECORD_HEADER_BYTES + keyLength + valueLength;
+        }
+        return live;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+    }
+
+    private void compact(Map<String, Record> live) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".compacting");
+        FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (Record record : live.values()) {
+                if (buffer.remaining() < record.size()) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer = ByteBuffer.allocate(Math.max(64 * 1024, record.size()));
+                }
+                record.writeTo(buffer);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(false);
+            // the open channel follows the file through the move, so it becomes the journal
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        FileChannel old = channel;
+        channel = out;
+        nextCompaction = System.currentTimeMillis() + compactionIntervalMillis;
+        compactions++;
+        try {
+            old.close();
+        } catch (IOException e) {
+            LOG.warn("Failed to close the old grant journal {}", file, e);
+        }
+    }
+
+    private static final class Record {
+
+        final byte type;
+        final long expiresAt;
+        final String key;
+        final byte[] keyBytes;
+        final byte[] value;
+
+        Record(byte type, long expiresAt, String key, byte[] value) {
+            this.type = type;
+            this.expiresAt = expiresAt;
+            this.key = key;
+            this.keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            this.value = value;
+        }
+
+        int size() {
+            return RECORD_HEADER_BYTES + keyBytes.length + value.length;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.put(type).putLong(expiresAt).putInt(keyBytes.length).putInt(value.length)
+                    .put(keyBytes).put(value);
+        }
+    }
+}
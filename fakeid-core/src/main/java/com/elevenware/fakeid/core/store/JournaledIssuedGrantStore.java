@@ -0,0 +1,71 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Journals every save to another {@link IssuedGrantStore} and replays the unexpired
+ * grants into it on construction, so access tokens outlive a restart.
+ */
+public final class JournaledIssuedGrantStore implements IssuedGrantStore, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JournaledIssuedGrantStore.class);
+
+    private final IssuedGrantStore delegate;
+    private final GrantJournal journal;
+
+    public JournaledIssuedGrantStore(IssuedGrantStore delegate, Path file, Duration compactionInterval) {
+        this.delegate = delegate;
+        this.journal = new GrantJournal(file, compactionInterval);
+        journal.open((token, encoded) -> delegate.save(GrantCodec.decodeIssuedGrant(encoded)));
+    }
+
+    @Override
+    public void save(IssuedGrant grant) {
+        delegate.save(grant);
+        journal.save(grant.getAccessToken(), grant.getExpiresAt().toEpochMilli(), GrantCodec.encode(grant));
+    }
+
+    @Override
+    public Optional<IssuedGrant> findByAccessToken(String accessToken) {
+        return delegate.findByAccessToken(accessToken);
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+        if (delegate instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) delegate).close();
+            } catch (Exception e) {
+                LOG.warn("Failed to close {}", delegate.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
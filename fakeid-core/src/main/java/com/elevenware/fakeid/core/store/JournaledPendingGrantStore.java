@@ -0,0 +1,79 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.PendingGrant;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Journals saves and redemptions for another {@link PendingGrantStore} and replays the
+ * unexpired, unredeemed codes into it on construction, so codes outlive a restart.
+ */
+public final class JournaledPendingGrantStore implements PendingGrantStore, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JournaledPendingGrantStore.class);
+
+    private final PendingGrantStore delegate;
+    private final GrantJournal journal;
+
+    public JournaledPendingGrantStore(PendingGrantStore delegate, Path file, Duration compactionInterval) {
+        this.delegate = delegate;
+        this.journal = new GrantJournal(file, compactionInterval);
+        journal.open((code, encoded) -> delegate.save(GrantCodec.decodePendingGrant(encoded)));
+    }
+
+    @Override
+    public void save(PendingGrant grant) {
+        delegate.save(grant);
+        journal.save(grant.getCode(), grant.getExpiresAt().toEpochMilli(), GrantCodec.encode(grant));
+    }
+
+    @Override
+    public Optional<PendingGrant> consume(String code) {
+        Optional<PendingGrant> consumed = delegate.consume(code);
+        if (consumed.isPresent()) {
+            journal.remove(code);
+        }
+        return consumed;
+    }
+
+    boolean compactNow(Duration timeout) throws InterruptedException {
+        return journal.compactNow(timeout);
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+        if (delegate instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) delegate).close();
+            } catch (Exception e) {
+                LOG.warn("Failed to close {}", delegate.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
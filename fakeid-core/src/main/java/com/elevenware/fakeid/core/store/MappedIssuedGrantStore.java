@@ -0,0 +1,61 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.core.error.InvalidRequestException;
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * An {@link IssuedGrantStore} kept in a memory-mapped file, so that several Fake ID
+ * processes on one host can introspect each other's tokens. Grants live off-heap and
+ * expired ones are never returned.
+ */
+public final class MappedIssuedGrantStore implements IssuedGrantStore, AutoCloseable {
+
+    private final MappedSlotTable table;
+
+    public MappedIssuedGrantStore(Path file, long capacity) {
+        this.table = new MappedSlotTable(file, capacity, 512);
+    }
+
+    @Override
+    public void save(IssuedGrant grant) {
+        byte[] encoded = GrantCodec.encode(grant);
+        if (!table.fits(grant.getAccessToken(), encoded)) {
+            throw new InvalidRequestException("token request is too large to store");
+        }
+        table.put(grant.getAccessToken(), grant.getExpiresAt().toEpochMilli(), encoded);
+    }
+
+    @Override
+    public Optional<IssuedGrant> findByAccessToken(String accessToken) {
+        return Optional.ofNullable(table.get(accessToken)).map(GrantCodec::decodeIssuedGrant);
+    }
+
+    @Override
+    public void close() {
+        table.close();
+    }
+}
@@ -0,0 +1,61 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.core.error.InvalidRequestException;
+import com.oidc4j.v2.lib.store.PendingGrant;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * A {@link PendingGrantStore} kept in a memory-mapped file and shared between the Fake ID
+ * processes on one host. A code can be redeemed once across all of them, and expired
+ * codes can't be redeemed at all.
+ */
+public final class MappedPendingGrantStore implements PendingGrantStore, AutoCloseable {
+
+    private final MappedSlotTable table;
+
+    public MappedPendingGrantStore(Path file, long capacity) {
+        this.table = new MappedSlotTable(file, capacity, 512);
+    }
+
+    @Override
+    public void save(PendingGrant grant) {
+        byte[] encoded = GrantCodec.encode(grant);
+        if (!table.fits(grant.getCode(), encoded)) {
+            throw new InvalidRequestException("authorization request is too large to store");
+        }
+        table.put(grant.getCode(), grant.getExpiresAt().toEpochMilli(), encoded);
+    }
+
+    @Override
+    public Optional<PendingGrant> consume(String code) {
+        return Optional.ofNullable(table.take(code)).map(GrantCodec::decodePendingGrant);
+    }
+
+    @Override
+    public void close() {
+        table.close();
+    }
+}
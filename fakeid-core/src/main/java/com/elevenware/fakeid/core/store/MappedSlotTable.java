@@ -0,0 +1,318 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash table of fixed-size slots in a memory-mapped file, shared by
+ * every process that maps the same file.
+ * <p>
+ * Each slot starts with a control word holding a tag from the key's hash, a sequence
+ * number that changes on every write, and the slot state. Writers claim a slot by
+ * compare-and-set on that word, and readers check that it is unchanged after copying a
+ * record out, so no locks are taken across processes. Expired records are overwritten
+ * when an insert probes past them. Keys are random codes and tokens and are assumed to
+ * be unique. A writer that dies holding a slot leaves it busy; lookups give up waiting
+ * on it and carry on probing.
+ * <p>
+ * Slots never return to empty, so once every slot has been written a miss would probe
+ * the whole table. The header records the furthest any record has been placed from
+ * its home slot, and lookups stop there.
+ * <pre>
+ * header: magic(8) version(4) slotSize(4) capacity(8) maxDisplacement(8, native order)
+ * slot:   control(8) expiresAtMillis(8) keyLength(4) valueLength(4) key value
+ * </pre>
+ */
+final class MappedSlotTable implements AutoCloseable {
+
+    private static final long MAGIC = 0x46414b4549444754L;
+    private static final int VERSION = 1;
+    private static final int MAX_DISPLACEMENT_OFFSET = 24;
+    private static final int HEADER_BYTES = 4096;
+    private static final int SLOT_HEADER_BYTES = 24;
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final int EMPTY = 0;
+    private static final int BUSY = 1;
+    private static final int FULL = 2;
+    private static final int DELETED = 3;
+    private static final int SEQUENCE_MASK = 0x3FFFFFFF;
+    private static final int MAX_BUSY_SPINS = 1 << 20;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int slotSize;
+    private final long capacity;
+
+    MappedSlotTable(Path file, long capacity, int slotSize) {
+        if (Integer.bitCount(slotSize) != 1 || slotSize < 128 || slotSize > HEADER_BYTES) {
+            throw new IllegalArgumentException("Slot size must be a power of two between 128 and 4096: " + slotSize);
+        }
+        this.file = file;
+        try {
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long[] layout = openOrInitialise(capacity, slotSize);
+            this.capacity = layout[0];
+            this.slotSize = (int) layout[1];
+            long length = HEADER_BYTES + this.capacity * this.slotSize;
+            this.segments = new MappedByteBuffer[(int) ((length + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = i * SEGMENT_BYTES;
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(SEGMENT_BYTES, length - position));
+                segments[i].order(ByteOrder.nativeOrder());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open grant store " + file, e);
+        }
+    }
+
+    /**
+     * Whether a record for {@code key} and {@code value} fits in one slot. Callers check
+     * this first, as {@link #put} refuses records that don't.
+     */
+    boolean fits(String key, byte[] value) {
+        return SLOT_HEADER_BYTES + key.getBytes(StandardCharsets.UTF_8).length + value.length <= slotSize;
+    }
+
+    void put(String key, long expiresAtMillis, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (SLOT_HEADER_BYTES + keyBytes.length + value.length > slotSize) {
+            throw new IllegalArgumentException("Record for " + key + " does not fit in a " + slotSize + " byte slot");
+        }
+        long hash = hash(keyBytes);
+        int tag = (int) (hash >>> 32);
+        long now = System.currentTimeMillis();
+        long start = Math.floorMod(hash, capacity);
+        for (long probe = 0; probe < capacity; probe++) {
+            long slot = (start + probe) % capacity;
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            long control = awaitNotBusy(segment, offset);
+            int state = state(control);
+            if (state == BUSY || (state == FULL && segment.getLong(offset + 8) > now)) {
+                continue;
+            }
+            int sequence = next(control);
+            if (!LONG.compareAndSet(segment, offset, control, word(tag, sequence, BUSY))) {
+                probe--;
+                continue;
+            }
+            recordDisplacement(probe);
+            segment.putLong(offset + 8, expiresAtMillis);
+            segment.putInt(offset + 16, keyBytes.length);
+            segment.putInt(offset + 20, value.length);
+            segment.put(offset + SLOT_HEADER_BYTES, keyBytes);
+            segment.put(offset + SLOT_HEADER_BYTES + keyBytes.length, value);
+            LONG.setRelease(segment, offset, word(tag, sequence, FULL));
+            return;
+        }
+        throw new IllegalStateException("Grant store " + file + " is full");
+    }
+
+    byte[] get(String key) {
+        return find(key, false);
+    }
+
+    /**
+     * Removes and returns the record for a key. Only one caller, in any process, gets a
+     * given record.
+     */
+    byte[] take(String key) {
+        return find(key, true);
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] find(String key, boolean remove) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+        int tag = (int) (hash >>> 32);
+        long start = Math.floorMod(hash, capacity);
+        long probes = Math.min(capacity, maxDisplacement() + 1);
+        for (long probe = 0; probe < probes; probe++) {
+            long slot = (start + probe) % capacity;
+            ByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            long control = (long) LONG.getAcquire(segment, offset);
+            if (control == EMPTY) {
+                return null;
+            }
+            if (tag(control) != tag) {
+                continue;
+            }
+            if (state(control) == BUSY) {
+                if (state(awaitNotBusy(segment, offset)) != BUSY) {
+                    probe--;
+                }
+                // otherwise its writer has died or stalled, so treat it as another key's
+                continue;
+            }
+            if (state(control) != FULL) {
+                continue;
+            }
+            long expiresAt = segment.getLong(offset + 8);
+            int keyLength = segment.getInt(offset + 16);
+            int valueLength = segment.getInt(offset + 20);
+            if (keyLength != keyBytes.length || SLOT_HEADER_BYTES + keyLength + valueLength > slotSize) {
+                if (unchanged(segment, offset, control)) {
+                    continue;
+                }
+                probe--;
+                continue;
+            }
+            byte[] storedKey = new byte[keyLength];
+            segment.get(offset + SLOT_HEADER_BYTES, storedKey);
+            byte[] value = new byte[valueLength];
+            segment.get(offset + SLOT_HEADER_BYTES + keyLength, value);
+            if (!unchanged(segment, offset, control)) {
+                probe--;
+                continue;
+            }
+            if (!Arrays.equals(storedKey, keyBytes)) {
+                continue;
+            }
+            boolean expired = expiresAt <= System.currentTimeMillis();
+            if (remove || expired) {
+                if (!LONG.compareAndSet(segment, offset, control, word(tag, next(control), DELETED))) {
+                    // someone else consumed or replaced it first
+                    probe--;
+                    continue;
+                }
+            }
+            return expired ? null : value;
+        }
+        return null;
+    }
+
+    long maxDisplacement() {
+        return (long) LONG.getAcquire(segments[0], MAX_DISPLACEMENT_OFFSET);
+    }
+
+    private void recordDisplacement(long displacement) {
+        long recorded = maxDisplacement();
+        while (displacement > recorded
+                && !LONG.compareAndSet(segments[0], MAX_DISPLACEMENT_OFFSET, recorded, displacement)) {
+            recorded = maxDisplacement();
+        }
+    }
+
+    private static boolean unchanged(ByteBuffer segment, int offset, long control) {
+        VarHandle.loadLoadFence();
+        return (long) LONG.getAcquire(segment, offset) == control;
+    }
+
+    private static long awaitNotBusy(ByteBuffer segment, int offset) {
+        long control = (long) LONG.getAcquire(segment, offset);
+        for (int spins = 0; state(control) == BUSY && spins < MAX_BUSY_SPINS; spins++) {
+            Thread.onSpinWait();
+            control = (long) LONG.getAcquire(segment, offset);
+        }
+        return control;
+    }
+
+    private ByteBuffer segment(long slot) {
+        return segments[(int) ((HEADER_BYTES + slot * slotSize) / SEGMENT_BYTES)];
+    }
+
+    private int offset(long slot) {
+        return (int) ((HEADER_BYTES + slot * slotSize) % SEGMENT_BYTES);
+    }
+
+    private long[] openOrInitialise(long capacity, int slotSize) throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            ByteBuffer header = ByteBuffer.allocate(24);
+            if (channel.size() == 0) {
+                header.putLong(MAGIC).putInt(VERSION).putInt(slotSize).putLong(capacity).flip();
+                channel.write(header, 0);
+                // extends the file sparsely; slots, and the max displacement, read as zero until written
+                channel.write(ByteBuffer.wrap(new byte[1]), HEADER_BYTES + capacity * slotSize - 1);
+                return new long[] {capacity, slotSize};
+            }
+            channel.read(header, 0);
+            header.flip();
+            int version = header.remaining() < 24 || header.getLong() != MAGIC ? -1 : header.getInt();
+            if (version != VERSION) {
+                throw new IllegalStateException(file + " is not a Fake ID grant store");
+            }
+            int existingSlotSize = header.getInt();
+            long existingCapacity = header.getLong();
+            return new long[] {existingCapacity, existingSlotSize};
+        } finally {
+            lock.release();
+        }
+    }
+
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long word(int tag, int sequence, int state) {
+        return ((long) tag << 32) | ((long) sequence << 2) | state;
+    }
+
+    private static int tag(long control) {
+        return (int) (control >>> 32);
+    }
+
+    private static int next(long control) {
+        return ((int) (control >>> 2) + 1) & SEQUENCE_MASK;
+    }
+
+    private static int state(long control) {
+        return (int) (control & 3);
+    }
+}
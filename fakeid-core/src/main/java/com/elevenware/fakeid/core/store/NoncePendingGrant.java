@@ -0,0 +1,49 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.PendingGrant;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * A pending grant that also carries the nonce from the authorization request, so the
+ * nonce lives and expires with its code and is handed back by the same consume.
+ */
+public final class NoncePendingGrant extends PendingGrant {
+
+    private final String nonce;
+
+    public NoncePendingGrant(String code, String clientId, String subject, Set<String> scopes,
+                             String redirectUri, String nonce, Instant createdAt, Instant expiresAt) {
+        super(code, clientId, subject, scopes, redirectUri, null, null, createdAt, expiresAt);
+        this.nonce = nonce;
+    }
+
+    public String getNonce() {
+        return nonce;
+    }
+
+    public static String nonceOf(PendingGrant grant) {
+        return grant instanceof NoncePendingGrant ? ((NoncePendingGrant) grant).nonce : null;
+    }
+}
@@ -0,0 +1,41 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * A refresh token and what it may be exchanged for. Tokens rotated from the same
+ * authorization share a family, so that replaying a used one can revoke them all, and
+ * carry the time the user signed in, so id_tokens minted on refresh keep its
+ * {@code auth_time}.
+ */
+public record RefreshGrant(
+        String refreshToken,
+        String family,
+        String clientId,
+        String subject,
+        Set<String> scopes,
+        Instant authTime,
+        Instant issuedAt,
+        Instant expiresAt) {
+}
@@ -0,0 +1,51 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Holds refresh tokens until they expire. Implementations must be safe to call from
+ * many threads, and {@link #markUsed} must succeed for exactly one caller per token.
+ */
+public interface RefreshTokenStore {
+
+    void save(RefreshGrant grant);
+
+    /**
+     * Finds a grant that hasn't expired, whether or not it has been used, unless its
+     * family has been revoked.
+     */
+    Optional<RefreshGrant> find(String refreshToken);
+
+    /**
+     * Marks a token as used.
+     *
+     * @return {@code true} if this call was the first to use it
+     */
+    boolean markUsed(String refreshToken);
+
+    /**
+     * Revokes every token in a family, including ones saved later, until {@code until}.
+     */
+    void revokeFamily(String family, Instant until);
+}
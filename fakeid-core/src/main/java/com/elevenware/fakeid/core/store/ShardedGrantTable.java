@@ -0,0 +1,215 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A hash table split into independently locked shards, for grants keyed by random codes
+ * and tokens.
+ * <p>
+ * Only inserts take a shard's lock, and it is a {@link ReentrantLock} rather than a
+ * monitor so that a virtual thread waiting on it doesn't pin its carrier. Lookups probe
+ * the shard's current open-addressing array without locking. Each entry holds its value
+ * in an atomic reference, so {@link #take} is a single compare-and-set and only one
+ * caller ever gets a given value. Saving a key again replaces its entry. Taken and
+ * expired entries are dropped when a shard is rehashed, which happens once dead and
+ * live entries fill half of its array.
+ */
+final class ShardedGrantTable<V> {
+
+    private static final int MIN_SHARD_CAPACITY = 16;
+
+    private final Shard<V>[] shards;
+    private final int shardMask;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ShardedGrantTable(int shardCount) {
+        int count = Integer.highestOneBit(Math.max(1, shardCount - 1) << 1);
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard<>();
+        }
+        this.shardMask = count - 1;
+    }
+
+    void put(String key, V value, long expiresAtMillis) {
+        int hash = spread(key.hashCode());
+        shards[hash & shardMask].put(new Entry<>(key, hash, value, expiresAtMillis));
+    }
+
+    V get(String key) {
+        Entry<V> entry = find(key);
+        return entry == null ? null : entry.value.get();
+    }
+
+    V take(String key) {
+        Entry<V> entry = find(key);
+        if (entry == null) {
+            return null;
+        }
+        V value = entry.value.get();
+        return value != null && entry.value.compareAndSet(value, null) ? value : null;
+    }
+
+    int size() {
+        int size = 0;
+        for (Shard<V> shard : shards) {
+            size += shard.live();
+        }
+        return size;
+    }
+
+    private Entry<V> find(String key) {
+        int hash = spread(key.hashCode());
+        Entry<V> entry = shards[hash & shardMask].find(key, hash);
+        if (entry == null || entry.expiresAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    private static final class Entry<V> {
+
+        final String key;
+        final int hash;
+        final AtomicReference<V> value;
+        final long expiresAt;
+
+        Entry(String key, int hash, V value, long expiresAt) {
+            this.key = key;
+            this.hash = hash;
+            this.value = new AtomicReference<>(value);
+            this.expiresAt = expiresAt;
+        }
+
+        boolean dead(long now) {
+            return value.get() == null || expiresAt <= now;
+        }
+    }
+
+    private static final class Shard<V> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile AtomicReferenceArray<Entry<V>> table = new AtomicReferenceArray<>(MIN_SHARD_CAPACITY);
+        private int used;
+
+        Entry<V> find(String key, int hash) {
+            AtomicReferenceArray<Entry<V>> current = table;
+            int index = indexOf(current, key, hash);
+            return index < 0 ? null : current.get(index);
+        }
+
+        void put(Entry<V> entry) {
+            lock.lock();
+            try {
+                AtomicReferenceArray<Entry<V>> current = table;
+                int existing = indexOf(current, entry.key, entry.hash);
+                if (existing >= 0) {
+                    current.set(existing, entry);
+                    return;
+                }
+                if ((used + 1) * 2 > current.length()) {
+                    current = rehash(current);
+                }
+                insert(current, entry);
+                used++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int live() {
+            AtomicReferenceArray<Entry<V>> current = table;
+            long now = System.currentTimeMillis();
+            int live = 0;
+            for (int i = 0; i < current.length(); i++) {
+                Entry<V> entry = current.get(i);
+                if (entry != null && !entry.dead(now)) {
+                    live++;
+                }
+            }
+            return live;
+        }
+
+        private AtomicReferenceArray<Entry<V>> rehash(AtomicReferenceArray<Entry<V>> current) {
+            long now = System.currentTimeMillis();
+            int live = 0;
+            for (int i = 0; i < current.length(); i++) {
+                Entry<V> entry = current.get(i);
+                if (entry != null && !entry.dead(now)) {
+                    live++;
+                }
+            }
+            int capacity = Math.max(MIN_SHARD_CAPACITY, Integer.highestOneBit(Math.max(1, (live + 1) * 4 - 1)) << 1);
+            AtomicReferenceArray<Entry<V>> next = new AtomicReferenceArray<>(capacity);
+            for (int i = 0; i < current.length(); i++) {
+                Entry<V> entry = current.get(i);
+                if (entry != null && !entry.dead(now)) {
+                    insert(next, entry);
+                }
+            }
+            used = live;
+            table = next;
+            return next;
+        }
+
+        private static <V> int indexOf(AtomicReferenceArray<Entry<V>> current, String key, int hash) {
+            int mask = current.length() - 1;
+            for (int i = start(hash, current), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                Entry<V> entry = current.get(i);
+                if (entry == null) {
+                    return -1;
+                }
+                if (entry.hash == hash && entry.key.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Fibonacci hashing on the top bits, since every key in a shard shares the low
+         * bits that picked the shard.
+         */
+        private static int start(int hash, AtomicReferenceArray<?> table) {
+            return (hash * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(table.length()));
+        }
+
+        private static <V> void insert(AtomicReferenceArray<Entry<V>> target, Entry<V> entry) {
+            int mask = target.length() - 1;
+            int i = start(entry.hash, target);
+            while (target.get(i) != null) {
+                i = (i + 1) & mask;
+            }
+            target.set(i, entry);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+
+import java.util.Optional;
+
+/**
+ * An {@link IssuedGrantStore} sharded by access token, for many threads issuing and
+ * introspecting at once. Lookups don't lock, and expired grants are never returned.
+ */
+public final class ShardedIssuedGrantStore implements IssuedGrantStore {
+
+    private final ShardedGrantTable<IssuedGrant> grants;
+
+    public ShardedIssuedGrantStore() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public ShardedIssuedGrantStore(int shards) {
+        this.grants = new ShardedGrantTable<>(shards);
+    }
+
+    @Override
+    public void save(IssuedGrant grant) {
+        grants.put(grant.getAccessToken(), grant, grant.getExpiresAt().toEpochMilli());
+    }
+
+    @Override
+    public Optional<IssuedGrant> findByAccessToken(String accessToken) {
+        return Optional.ofNullable(grants.get(accessToken));
+    }
+
+    public int size() {
+        return grants.size();
+    }
+}
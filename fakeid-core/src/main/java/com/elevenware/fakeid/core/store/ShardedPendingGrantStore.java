@@ -0,0 +1,57 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.PendingGrant;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+
+import java.util.Optional;
+
+/**
+ * A {@link PendingGrantStore} sharded by code. Redeeming a code is a single
+ * compare-and-set, so it never locks and a code is only ever consumed once.
+ */
+public final class ShardedPendingGrantStore implements PendingGrantStore {
+
+    private final ShardedGrantTable<PendingGrant> grants;
+
+    public ShardedPendingGrantStore() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public ShardedPendingGrantStore(int shards) {
+        this.grants = new ShardedGrantTable<>(shards);
+    }
+
+    @Override
+    public void save(PendingGrant grant) {
+        grants.put(grant.getCode(), grant, grant.getExpiresAt().toEpochMilli());
+    }
+
+    @Override
+    public Optional<PendingGrant> consume(String code) {
+        return Optional.ofNullable(grants.take(code));
+    }
+
+    public int size() {
+        return grants.size();
+    }
+}
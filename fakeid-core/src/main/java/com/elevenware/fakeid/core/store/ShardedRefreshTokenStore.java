@@ -0,0 +1,83 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link RefreshTokenStore} on the same lock-free sharded table as the grant stores.
+ * Used and revoked markers live as long as the tokens they cover.
+ */
+public final class ShardedRefreshTokenStore implements RefreshTokenStore {
+
+    private final ShardedGrantTable<Entry> tokens;
+    private final ShardedGrantTable<Boolean> revokedFamilies;
+
+    public ShardedRefreshTokenStore() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public ShardedRefreshTokenStore(int shards) {
+        this.tokens = new ShardedGrantTable<>(shards);
+        this.revokedFamilies = new ShardedGrantTable<>(shards);
+    }
+
+    @Override
+    public void save(RefreshGrant grant) {
+        tokens.put(grant.refreshToken(), new Entry(grant), grant.expiresAt().toEpochMilli());
+    }
+
+    @Override
+    public Optional<RefreshGrant> find(String refreshToken) {
+        Entry entry = tokens.get(refreshToken);
+        if (entry == null || revokedFamilies.get(entry.grant.family()) != null) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.grant);
+    }
+
+    @Override
+    public boolean markUsed(String refreshToken) {
+        Entry entry = tokens.get(refreshToken);
+        return entry != null && entry.used.compareAndSet(false, true);
+    }
+
+    @Override
+    public void revokeFamily(String family, Instant until) {
+        revokedFamilies.put(family, Boolean.TRUE, until.toEpochMilli());
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    private static final class Entry {
+
+        final RefreshGrant grant;
+        final AtomicBoolean used = new AtomicBoolean();
+
+        Entry(RefreshGrant grant) {
+            this.grant = grant;
+        }
+    }
+}
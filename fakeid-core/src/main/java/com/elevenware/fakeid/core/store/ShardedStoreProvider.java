@@ -0,0 +1,43 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.Configuration;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+
+public final class ShardedStoreProvider implements StoreProvider {
+
+    @Override
+    public String name() {
+        return "sharded";
+    }
+
+    @Override
+    public PendingGrantStore pendingGrantStore(Configuration configuration) {
+        return new ShardedPendingGrantStore();
+    }
+
+    @Override
+    public IssuedGrantStore issuedGrantStore(Configuration configuration) {
+        return new ShardedIssuedGrantStore();
+    }
+}
@@ -0,0 +1,59 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.Configuration;
+import com.oidc4j.v2.lib.store.ClientStore;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+import com.oidc4j.v2.lib.store.UserStore;
+
+/**
+ * Supplies the stores behind a Fake ID instance. Implementations are found with
+ * {@link java.util.ServiceLoader} and picked by {@link #name()} through the
+ * {@code storeProvider} configuration key. Any store a provider returns {@code null}
+ * for is left to Fake ID's default. Stores that implement {@link AutoCloseable} are
+ * closed with the instance.
+ */
+public interface StoreProvider {
+
+    String name();
+
+    default ClientStore clientStore(Configuration configuration) {
+        return null;
+    }
+
+    default UserStore userStore(Configuration configuration) {
+        return null;
+    }
+
+    default PendingGrantStore pendingGrantStore(Configuration configuration) {
+        return null;
+    }
+
+    default IssuedGrantStore issuedGrantStore(Configuration configuration) {
+        return null;
+    }
+
+    default RefreshTokenStore refreshTokenStore(Configuration configuration) {
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * An issued grant that also records who it was issued for, so introspection and
+ * userinfo can answer for the right user when there is more than one.
+ */
+public final class SubjectIssuedGrant extends IssuedGrant {
+
+    private final String subject;
+
+    public SubjectIssuedGrant(String id, String clientId, String grantType, Set<String> scopes,
+                              String accessToken, String refreshToken, String subject,
+                              Instant issuedAt, Instant expiresAt) {
+        super(id, clientId, grantType, scopes, accessToken, refreshToken, issuedAt, expiresAt);
+        this.subject = subject;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public static String subjectOf(IssuedGrant grant) {
+        return grant instanceof SubjectIssuedGrant ? ((SubjectIssuedGrant) grant).subject : null;
+    }
+}
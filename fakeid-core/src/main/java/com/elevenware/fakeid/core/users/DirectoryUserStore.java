@@ -0,0 +1,74 @@
+package com.elevenware.fakeid.core.users;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.oidc4j.v2.lib.store.User;
+import com.oidc4j.v2.lib.store.UserStore;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link UserStore} that answers from a {@link UserDirectory}. Users saved to it are
+ * kept alongside and take precedence.
+ */
+public final class DirectoryUserStore implements UserStore {
+
+    private final UserDirectory directory;
+    private final Map<String, User> saved = new ConcurrentHashMap<>();
+
+    public DirectoryUserStore(UserDirectory directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Optional<User> findBySubject(String subject) {
+        User user = saved.get(subject);
+        if (user != null) {
+            return Optional.of(user);
+        }
+        return directory.findBySubject(subject).map(DirectoryUserStore::toUser);
+    }
+
+    @Override
+    public void save(User user) {
+        saved.put(user.getSubject(), user);
+    }
+
+    /**
+     * The oidc4j view of a user's standard claims.
+     */
+    public static User toUser(Map<String, Object> claims) {
+        return new User(
+                claims.get("sub").toString(),
+                str(claims.get("name")),
+                str(claims.get("preferred_username")),
+                str(claims.get("given_name")),
+                str(claims.get("family_name")),
+                str(claims.get("email")),
+                Boolean.TRUE.equals(claims.get("email_verified")));
+    }
+
+    private static String str(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
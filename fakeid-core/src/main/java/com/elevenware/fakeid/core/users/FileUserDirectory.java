@@ -0,0 +1,206 @@
+package com.elevenware.fakeid.core.users;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.ConfigurationException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Users read from a file, one per line, and indexed by subject, email and
+ * {@code preferred_username}. A {@code .csv} file has a header row of claim names;
+ * empty cells are left out, and {@code true} and {@code false} become booleans. Any
+ * other file is JSON Lines, one object of claims per line. Every user needs a
+ * {@code sub}.
+ */
+public final class FileUserDirectory implements UserDirectory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileUserDirectory.class);
+
+    private final List<Map<String, Object>> users;
+    private final Map<String, Integer> bySubject;
+    private final Map<String, Integer> byLoginHint;
+
+    private FileUserDirectory(List<Map<String, Object>> users) {
+        this.users = users;
+        this.bySubject = new HashMap<>(users.size() * 2);
+        this.byLoginHint = new HashMap<>(users.size() * 2);
+        for (int i = 0; i < users.size(); i++) {
+            Map<String, Object> user = users.get(i);
+            if (bySubject.put(user.get("sub").toString(), i) != null) {
+                throw new ConfigurationException("Duplicate user: " + user.get("sub"));
+            }
+            for (String claim : new String[]{"email", "preferred_username"}) {
+                Object value = user.get(claim);
+                if (value != null) {
+                    byLoginHint.putIfAbsent(value.toString(), i);
+                }
+            }
+        }
+    }
+
+    public static FileUserDirectory load(Path file) {
+        LOG.info("Loading users from {}", file);
+        boolean csv = file.getFileName().toString().toLowerCase().endsWith(".csv");
+        List<Map<String, Object>> users = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (csv) {
+                readCsv(reader, file, users);
+            } else {
+                readJsonLines(reader, file, users);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read users from " + file, e);
+        }
+        LOG.info("Loaded {} users from {}", users.size(), file);
+        return new FileUserDirectory(users);
+    }
+
+    @Override
+    public int size() {
+        return users.size();
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        return users.get(index);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findBySubject(String subject) {
+        Integer index = bySubject.get(subject);
+        return index == null ? Optional.empty() : Optional.of(users.get(index));
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findByLoginHint(String loginHint) {
+        Integer index = bySubject.get(loginHint);
+        if (index == null) {
+            index = byLoginHint.get(loginHint);
+        }
+        return index == null ? Optional.empty() : Optional.of(users.get(index));
+    }
+
+    private static void readJsonLines(BufferedReader reader, Path file, List<Map<String, Object>> users)
+            throws IOException {
+        ObjectReader json = new ObjectMapper().readerFor(Map.class);
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Map<String, Object> claims;
+            try {
+                claims = json.readValue(line);
+            } catch (JsonProcessingException e) {
+                throw new ConfigurationException("Invalid user on line " + number + " of " + file + ": "
+                        + e.getOriginalMessage());
+            }
+            users.add(user(claims, number, file));
+        }
+    }
+
+    private static void readCsv(BufferedReader reader, Path file, List<Map<String, Object>> users)
+            throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        List<String> names = splitCsv(header);
+        String line;
+        int number = 1;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> cells = splitCsv(line);
+            Map<String, Object> claims = new LinkedHashMap<>();
+            for (int i = 0; i < names.size() && i < cells.size(); i++) {
+                String cell = cells.get(i);
+                if (!cell.isEmpty()) {
+                    claims.put(names.get(i), "true".equals(cell) || "false".equals(cell)
+                            ? Boolean.valueOf(cell)
+                            : cell);
+                }
+            }
+            users.add(user(claims, number, file));
+        }
+    }
+
+    private static Map<String, Object> user(Map<String, Object> claims, int line, Path file) {
+        if (!(claims.get("sub") instanceof String) || ((String) claims.get("sub")).isEmpty()) {
+            throw new ConfigurationException("User on line " + line + " of " + file + " has no sub");
+        }
+        return Collections.unmodifiableMap(claims);
+    }
+
+    /**
+     * Splits one CSV record. Cells may be quoted, with doubled quotes inside; quoted
+     * cells can't span lines.
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString().trim());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString().trim());
+        return cells;
+    }
+}
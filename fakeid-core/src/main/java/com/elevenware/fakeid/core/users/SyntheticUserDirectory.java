@@ -0,0 +1,182 @@
+package com.elevenware.fakeid.core.users;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A population of made-up users that is never loaded. The user at an index is worked
+ * out from the seed and the index whenever it is asked for, so the same seed always
+ * gives the same names, emails and groups, and startup and memory don't grow with the
+ * number of users. Recently used users are cached in a fixed table that each index
+ * maps to one slot of; a new user replaces whatever held its slot, so lookups never
+ * lock.
+ * <p>
+ * Subjects are {@code user-<index>}, usernames {@code <given>.<family>.<index>} and
+ * emails the username at {@code example.com}; any of them can be a {@code login_hint}.
+ */
+public final class SyntheticUserDirectory implements UserDirectory {
+
+    static final int DEFAULT_CACHE_SIZE = 1024;
+    private static final String SUBJECT_PREFIX = "user-";
+    private static final String EMAIL_DOMAIN = "@example.com";
+
+    private static final String[] GIVEN_NAMES = {
+            "Ada", "Alan", "Barbara", "Brian", "Claude", "Dennis", "Donald", "Edsger",
+            "Frances", "Grace", "Hedy", "Ivan", "Jean", "John", "Ken", "Leslie",
+            "Linus", "Margaret", "Mary", "Niklaus", "Radia", "Richard", "Shafi", "Sophie",
+            "Tim", "Tony", "Vint", "Whitfield", "Xavier", "Yukihiro", "Zara", "Annie"};
+    private static final String[] FAMILY_NAMES = {
+            "Allen", "Backus", "Cerf", "Dijkstra", "Easley", "Floyd", "Goldwasser", "Hopper",
+            "Iverson", "Johnson", "Kay", "Lamport", "Liskov", "Matsumoto", "Naur", "Ousterhout",
+            "Perlman", "Quinlan", "Ritchie", "Stallman", "Thompson", "Torvalds", "Ullman", "Valiant",
+            "Wilson", "Wirth", "Xu", "Yao", "Zuse", "Hamilton", "Knuth", "Lovelace"};
+    private static final String[] GROUPS = {
+            "admins", "developers", "operators", "auditors", "support", "finance", "sales", "beta"};
+
+    private final long seed;
+    private final int size;
+    private final AtomicReferenceArray<Cached> cache;
+    private final int cacheMask;
+
+    public SyntheticUserDirectory(long seed, int size) {
+        this(seed, size, DEFAULT_CACHE_SIZE);
+    }
+
+    public SyntheticUserDirectory(long seed, int size, int cacheSize) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative");
+        }
+        this.seed = seed;
+        this.size = size;
+        int slots = Integer.highestOneBit(Math.max(1, cacheSize - 1) << 1);
+        this.cache = new AtomicReferenceArray<>(slots);
+        this.cacheMask = slots - 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("No user " + index + " of " + size);
+        }
+        int slot = index & cacheMask;
+        Cached cached = cache.get(slot);
+        if (cached != null && cached.index == index) {
+            return cached.user;
+        }
+        Map<String, Object> user = generate(index);
+        cache.set(slot, new Cached(index, user));
+        return user;
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findBySubject(String subject) {
+        if (subject == null || !subject.startsWith(SUBJECT_PREFIX)) {
+            return Optional.empty();
+        }
+        int index = parseIndex(subject, SUBJECT_PREFIX.length(), subject.length());
+        return index < 0 ? Optional.empty() : Optional.of(get(index));
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findByLoginHint(String loginHint) {
+        if (loginHint == null) {
+            return Optional.empty();
+        }
+        if (loginHint.startsWith(SUBJECT_PREFIX)) {
+            return findBySubject(loginHint);
+        }
+        int end = loginHint.endsWith(EMAIL_DOMAIN) ? loginHint.length() - EMAIL_DOMAIN.length() : loginHint.length();
+        int index = parseIndex(loginHint, loginHint.lastIndexOf('.', end - 1) + 1, end);
+        if (index < 0) {
+            return Optional.empty();
+        }
+        Map<String, Object> user = get(index);
+        return loginHint.equals(user.get("email")) || loginHint.equals(user.get("preferred_username"))
+                ? Optional.of(user)
+                : Optional.empty();
+    }
+
+    /**
+     * Reads a decimal index from {@code value}, or returns -1 if it isn't one of ours.
+     * Leading zeros are refused so each user has exactly one subject.
+     */
+    private int parseIndex(String value, int start, int end) {
+        if (start >= end || end - start > 10 || (value.charAt(start) == '0' && end - start > 1)) {
+            return -1;
+        }
+        long index = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index < size ? (int) index : -1;
+    }
+
+    private Map<String, Object> generate(int index) {
+        long bits = mix(seed + index * 0x9E3779B97F4A7C15L);
+        String given = GIVEN_NAMES[(int) (bits & 31)];
+        String family = FAMILY_NAMES[(int) ((bits >>> 5) & 31)];
+        List<String> groups = new ArrayList<>(2);
+        for (int g = 0; g < GROUPS.length; g++) {
+            // roughly one group in four
+            if (((bits >>> (10 + 2 * g)) & 3) == 0) {
+                groups.add(GROUPS[g]);
+            }
+        }
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", SUBJECT_PREFIX + index);
+        claims.put("name", given + " " + family);
+        claims.put("given_name", given);
+        claims.put("family_name", family);
+        claims.put("preferred_username", given.toLowerCase() + "." + family.toLowerCase() + "." + index);
+        claims.put("email", given.toLowerCase() + "." + family.toLowerCase() + "." + index + EMAIL_DOMAIN);
+        claims.put("email_verified", ((bits >>> 26) & 7) != 0);
+        claims.put("groups", Collections.unmodifiableList(groups));
+        return Collections.unmodifiableMap(claims);
+    }
+
+    private record Cached(int index, Map<String, Object> user) {
+    }
+
+    /**
+     * The SplitMix64 finaliser: spreads one step of the sequence over all 64 bits.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
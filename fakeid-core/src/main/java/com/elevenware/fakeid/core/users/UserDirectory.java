@@ -0,0 +1,49 @@
+package com.elevenware.fakeid.core.users;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The users Fake ID signs in when it has more than one. Each user is the map of claims
+ * that goes into their id token and userinfo, and always includes {@code sub}.
+ * Implementations are read from many threads at once.
+ */
+public interface UserDirectory {
+
+    int size();
+
+    /**
+     * The user at {@code index}, from 0 to {@code size() - 1}.
+     */
+    Map<String, Object> get(int index);
+
+    Optional<Map<String, Object>> findBySubject(String subject);
+
+    /**
+     * Finds the user an authorization request's {@code login_hint} names. By default
+     * the hint is taken to be a subject.
+     */
+    default Optional<Map<String, Object>> findByLoginHint(String loginHint) {
+        return findBySubject(loginHint);
+    }
+}
@@ -0,0 +1,76 @@
+package com.elevenware.fakeid.core.users;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.ConfigurationException;
+import com.elevenware.fakeid.core.dto.AuthorizeRequest;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How an authorization request without a usable {@code login_hint} picks its user.
+ */
+public enum UserSelection {
+
+    /**
+     * Each request takes the next user in turn.
+     */
+    ROUND_ROBIN("round-robin") {
+        @Override
+        public int pick(AuthorizeRequest request, int size, AtomicLong counter) {
+            return (int) Math.floorMod(counter.getAndIncrement(), (long) size);
+        }
+    },
+
+    /**
+     * The user follows from the client id and state, so replaying a request signs in
+     * the same user.
+     */
+    HASH("hash") {
+        @Override
+        public int pick(AuthorizeRequest request, int size, AtomicLong counter) {
+            int hash = Objects.hash(request.clientId(), request.state()) * 0x9E3779B9;
+            return Math.floorMod(hash ^ (hash >>> 16), size);
+        }
+    };
+
+    private final String value;
+
+    UserSelection(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public abstract int pick(AuthorizeRequest request, int size, AtomicLong counter);
+
+    public static UserSelection parse(String value) {
+        for (UserSelection selection : values()) {
+            if (selection.value.equals(value)) {
+                return selection;
+            }
+        }
+        throw new ConfigurationException("Unknown user selection: " + value);
+    }
+}
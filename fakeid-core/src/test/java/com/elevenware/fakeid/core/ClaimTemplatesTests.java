@@ -0,0 +1,99 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.ConfigurationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimTemplatesTests {
+
+    private static final ClaimTemplates.Context CONTEXT = new ClaimTemplates.Context("alice", "web", 1000L, 2000L);
+
+    @Test
+    void placeholdersAreFilledFromTheToken() {
+        Map<String, String> templates = new LinkedHashMap<>();
+        templates.put("auth_time", "${auth_time}");
+        templates.put("issued", "${iat}");
+        templates.put("tenant", "tenant-${client_id}");
+        templates.put("who", "${sub}@${client_id}");
+        templates.put("plain", "no placeholders");
+        templates.put("alias", "${sub}");
+
+        Map<String, Object> claims = evaluate(ClaimTemplates.compile(templates, new SecureIdGenerator()));
+
+        assertEquals(1000L, claims.get("auth_time"));
+        assertEquals(2000L, claims.get("issued"));
+        assertEquals("tenant-web", claims.get("tenant"));
+        assertEquals("alice@web", claims.get("who"));
+        assertEquals("no placeholders", claims.get("plain"));
+        assertEquals("alice", claims.get("alias"));
+    }
+
+    @Test
+    void countersCountAndRandomValuesDiffer() {
+        ClaimTemplates templates = ClaimTemplates.compile(
+                Map.of("n", "${counter}", "label", "#${counter}", "sid", "${random}"), new SecureIdGenerator());
+
+        Map<String, Object> first = evaluate(templates);
+        Map<String, Object> second = evaluate(templates);
+
+        assertEquals(1L, first.get("n"));
+        assertEquals(2L, second.get("n"));
+        assertEquals("#2", second.get("label"));
+        assertNotEquals(first.get("sid"), second.get("sid"));
+    }
+
+    @Test
+    void appendedJsonMatchesTheEvaluatedClaims() {
+        Map<String, String> templates = new LinkedHashMap<>();
+        templates.put("auth_time", "${auth_time}");
+        templates.put("quote\"d", "say \"${sub}\"");
+        StringBuilder json = new StringBuilder("{\"a\":1");
+
+        ClaimTemplates.compile(templates, new SecureIdGenerator()).appendJson(CONTEXT, json);
+
+        assertEquals("{\"a\":1,\"auth_time\":1000,\"quote\\\"d\":\"say \\\"alice\\\"\"", json.toString());
+    }
+
+    @Test
+    void badTemplatesAreRejectedUpFront() {
+        SecureIdGenerator ids = new SecureIdGenerator();
+        assertThrows(ConfigurationException.class, () -> ClaimTemplates.compile(Map.of("x", "${nope}"), ids));
+        assertThrows(ConfigurationException.class, () -> ClaimTemplates.compile(Map.of("x", "${sub"), ids));
+        assertThrows(ConfigurationException.class, () -> ClaimTemplates.compile(Map.of("sub", "${client_id}"), ids));
+        assertTrue(ClaimTemplates.compile(null, ids).isEmpty());
+    }
+
+    private static Map<String, Object> evaluate(ClaimTemplates templates) {
+        Map<String, Object> claims = new HashMap<>();
+        templates.evaluate(CONTEXT, claims::put);
+        return claims;
+    }
+}
@@ -21,30 +21,56 @@ package com.elevenware.fakeid.core;
  */
 
 import com.elevenware.fakeid.Configuration;
+import com.elevenware.fakeid.ConfigurationException;
 import com.elevenware.fakeid.core.dto.AuthorizeRequest;
 import com.elevenware.fakeid.core.dto.AuthorizeResponse;
 import com.elevenware.fakeid.core.dto.IntrospectRequest;
 import com.elevenware.fakeid.core.dto.IntrospectResponse;
 import com.elevenware.fakeid.core.dto.TokenRequest;
 import com.elevenware.fakeid.core.dto.TokenResponse;
+import com.elevenware.fakeid.core.dto.UserInfoResponse;
+import com.elevenware.fakeid.core.error.InvalidGrantException;
+import com.elevenware.fakeid.core.error.InvalidScopeException;
+import com.elevenware.fakeid.core.error.InvalidTokenException;
 import com.elevenware.fakeid.core.error.UnsupportedGrantTypeException;
+import com.elevenware.fakeid.core.store.ShardedIssuedGrantStore;
+import com.elevenware.fakeid.core.users.UserDirectory;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
 import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -102,6 +128,158 @@ class FakeIdCoreTests {
         assertTrue(claims.getAudience().contains("my-client"));
     }
 
+    @Test
+    void templatedIdTokensAreSignedWithConfiguredClaims() throws Exception {
+        RSAKey jwk = new RSAKeyGenerator(2048)
+                .keyUse(KeyUse.SIGNATURE)
+                .keyID("signingKey")
+                .algorithm(JWSAlgorithm.RS256)
+                .generate();
+        Configuration cfg = Configuration.builder()
+                .jwks(new JWKSet(jwk))
+                .claims(Map.of("sub", "user@example.com", "email", "user@example.com"))
+                .templatedIdTokens(true)
+                .build();
+        FakeIdCore core = new FakeIdCore(cfg);
+
+        AuthorizeResponse authResp = core.authorize(new AuthorizeRequest(
+                "my-client",
+                "https://app.example/cb",
+                "code",
+                Set.of("openid"),
+                null,
+                "nonce-xyz"));
+        TokenResponse tokenResp = core.token(new TokenRequest(
+                "authorization_code", authResp.code(), null, "my-client", "ignored"));
+
+        SignedJWT idToken = SignedJWT.parse(tokenResp.idToken());
+        assertTrue(idToken.verify(new RSASSAVerifier(jwk)));
+        JWTClaimsSet claims = idToken.getJWTClaimsSet();
+        assertEquals("user@example.com", claims.getSubject());
+        assertEquals("user@example.com", claims.getStringClaim("email"));
+        assertEquals(cfg.getIssuer(), claims.getIssuer());
+        assertEquals("nonce-xyz", claims.getStringClaim("nonce"));
+        assertTrue(claims.getAudience().contains("my-client"));
+    }
+
+    @Test
+    void es256IdTokenVerifiesAgainstPublishedJwks() throws Exception {
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .signingAlgorithm(JWSAlgorithm.ES256)
+                .claims(Map.of("sub", "ec-user"))
+                .build());
+
+        AuthorizeResponse resp = core.authorize(new AuthorizeRequest(
+                "ec-client", "https://app/cb", "id_token", Set.of("openid"), null, "nonce"));
+
+        JWK published = JWKSet.parse(core.jwks()).getKeyByKeyId("signingKey");
+        assertFalse(published.isPrivate());
+        SignedJWT idToken = SignedJWT.parse(resp.idToken());
+        assertEquals(JWSAlgorithm.ES256, idToken.getHeader().getAlgorithm());
+        assertTrue(idToken.verify(new ECDSAVerifier((ECKey) published)));
+        assertEquals("ec-user", idToken.getJWTClaimsSet().getSubject());
+    }
+
+    @Test
+    void edDsaIdTokenVerifiesAgainstPublishedJwks() throws Exception {
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .signingAlgorithm(JWSAlgorithm.EdDSA)
+                .claims(Map.of("sub", "ed-user"))
+                .build());
+
+        AuthorizeResponse resp = core.authorize(new AuthorizeRequest(
+                "ed-client", "https://app/cb", "id_token", Set.of("openid"), null, "nonce"));
+
+        JWK published = JWKSet.parse(core.jwks()).getKeyByKeyId("signingKey");
+        assertFalse(published.isPrivate());
+        SignedJWT idToken = SignedJWT.parse(resp.idToken());
+        assertEquals(JWSAlgorithm.EdDSA, idToken.getHeader().getAlgorithm());
+        assertTrue(idToken.verify(new Ed25519Verifier((OctetKeyPair) published)));
+        assertEquals("ed-user", idToken.getJWTClaimsSet().getSubject());
+    }
+
+    @Test
+    void hs256IdTokenVerifiesWithSharedSecret() throws Exception {
+        String secret = "client-secret-shared-with-the-relying-party";
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .signingAlgorithm(JWSAlgorithm.HS256)
+                .signingSecret(secret)
+                .claims(Map.of("sub", "hmac-user"))
+                .build());
+
+        AuthorizeResponse resp = core.authorize(new AuthorizeRequest(
+                "rp", "https://app/cb", "id_token", Set.of("openid"), null, "nonce"));
+
+        SignedJWT idToken = SignedJWT.parse(resp.idToken());
+        assertEquals(JWSAlgorithm.HS256, idToken.getHeader().getAlgorithm());
+        assertTrue(idToken.verify(new MACVerifier(secret.getBytes(StandardCharsets.UTF_8))));
+        assertEquals("hmac-user", idToken.getJWTClaimsSet().getSubject());
+        assertTrue(JWKSet.parse(core.jwks()).isEmpty());
+        assertEquals(List.of("HS256"), core.discoveryMetadata().get("id_token_signing_alg_values_supported"));
+    }
+
+    @Test
+    void pooledIdTokensAreServedForNonceLessCodes() throws Exception {
+        RSAKey jwk = new RSAKeyGenerator(2048)
+                .keyUse(KeyUse.SIGNATURE)
+                .keyID("signingKey")
+                .algorithm(JWSAlgorithm.RS256)
+                .generate();
+        try (FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .jwks(new JWKSet(jwk))
+                .claims(Map.of("sub", "pooled-user"))
+                .tokenPoolSize(4)
+                .build())) {
+            for (int i = 0; i < 10; i++) {
+                AuthorizeResponse authResp = core.authorize(new AuthorizeRequest(
+                        "pool-client", "https://app/cb", "code", Set.of("openid"), null, null));
+                TokenResponse tokenResp = core.token(new TokenRequest(
+                        "authorization_code", authResp.code(), null, "pool-client", "ignored"));
+
+                SignedJWT idToken = SignedJWT.parse(tokenResp.idToken());
+                assertTrue(idToken.verify(new RSASSAVerifier(jwk)));
+                assertEquals("pooled-user", idToken.getJWTClaimsSet().getSubject());
+                assertTrue(idToken.getJWTClaimsSet().getAudience().contains("pool-client"));
+                assertNull(idToken.getJWTClaimsSet().getClaim("nonce"));
+            }
+        }
+    }
+
+    @Test
+    void pooledIdTokensAreOnlyServedToTheConfiguredUser() throws Exception {
+        try (FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .claims(Map.of("sub", "pooled-user"))
+                .tokenPoolSize(4)
+                .build())) {
+            core.token(new TokenRequest(
+                    "authorization_code", codeFor(core, Set.of("openid")), null, "my-client", "ignored"));
+            Thread.sleep(200);
+
+            core.savePendingAuthCode("bobs-code", "my-client", "bob", Set.of("openid"), "https://app/cb", null);
+            TokenResponse bobs = core.token(new TokenRequest("authorization_code", "bobs-code", null, "my-client", "ignored"));
+
+            assertEquals("bob", SignedJWT.parse(bobs.idToken()).getJWTClaimsSet().getSubject());
+        }
+    }
+
+    @Test
+    void pooledTokensSignedWithARotatedKeyAreDropped() throws Exception {
+        try (FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .jwtAccessTokens(true)
+                .tokenPoolSize(4)
+                .build())) {
+            core.token(new TokenRequest("client_credentials", null, "api", "svc", "secret"));
+            Thread.sleep(200);
+
+            core.rotateSigningKey();
+            String current = SignedJWT.parse(core.authorize(new AuthorizeRequest(
+                    "rp", "https://app/cb", "id_token", Set.of("openid"), null, null)).idToken()).getHeader().getKeyID();
+            String accessToken = core.token(new TokenRequest("client_credentials", null, "api", "svc", "secret")).accessToken();
+
+            assertEquals(current, SignedJWT.parse(accessToken).getHeader().getKeyID());
+        }
+    }
+
     @Test
     void implicitFlowEmbedsIdTokenInResponse() throws Exception {
         RSAKey jwk = new RSAKeyGenerator(2048)
@@ -157,6 +335,166 @@ class FakeIdCoreTests {
         assertTrue(resp.scope().contains("api:write"));
     }
 
+    @Test
+    void idTokensAreOnlyMintedForTheOpenidScope() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().build());
+        String code = core.authorize(new AuthorizeRequest(
+                "my-client", "https://app.example/cb", "code", Set.of("notopenid", "profile"), "state", null)).code();
+
+        TokenResponse resp = core.token(new TokenRequest("authorization_code", code, null, "my-client", "secret"));
+
+        assertNull(resp.idToken());
+        assertEquals(Set.of("notopenid", "profile"), Set.of(resp.scope().split(" ")));
+    }
+
+    @Test
+    void scopeParametersPassedAsOneElementAreSplit() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().build());
+        // the shape the HTTP adapter used to build: the whole scope parameter as one element
+        AuthorizeResponse authResp = core.authorize(new AuthorizeRequest(
+                "my-client", "https://app.example/cb", "code id_token", Set.of("profile openid"), "state", null));
+
+        TokenResponse resp = core.token(new TokenRequest("authorization_code", authResp.code(), null, "my-client", "secret"));
+
+        assertNotNull(authResp.idToken());
+        assertNotNull(resp.idToken());
+        assertEquals(Set.of("profile", "openid"), Set.of(resp.scope().split(" ")));
+    }
+
+    @Test
+    void configuredIdGeneratorNamesCodesTokensAndGrants() {
+        IdGenerator ids = new IdGenerator() {
+            @Override
+            public String authorizationCode() {
+                return "fixed-code";
+            }
+
+            @Override
+            public String accessToken() {
+                return "fixed-token";
+            }
+
+            @Override
+            public String grantId() {
+                return "fixed-grant";
+            }
+        };
+        ShardedIssuedGrantStore issuedGrants = new ShardedIssuedGrantStore();
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .idGenerator(ids)
+                .issuedGrantStore(issuedGrants)
+                .build());
+
+        String code = core.authorize(new AuthorizeRequest(
+                "my-client", "https://app.example/cb", "code", Set.of("openid"), "state", null)).code();
+        TokenResponse resp = core.token(new TokenRequest("authorization_code", code, null, "my-client", "secret"));
+
+        assertEquals("fixed-code", code);
+        assertEquals("fixed-token", resp.accessToken());
+        assertEquals("fixed-grant", issuedGrants.findByAccessToken("fixed-token").orElseThrow().getId());
+    }
+
+    @Test
+    void refreshTokensMintNewAccessTokensWithoutAnotherAuthorize() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().build());
+        TokenResponse first = core.token(new TokenRequest(
+                "authorization_code", codeFor(core, Set.of("openid", "api")), null, "my-client", "secret"));
+        assertNotNull(first.refreshToken());
+
+        TokenResponse refreshed = core.token(new TokenRequest(
+                "refresh_token", null, null, "my-client", "secret", first.refreshToken()));
+
+        assertEquals("refresh_token", refreshed.grantType());
+        assertNotEquals(first.accessToken(), refreshed.accessToken());
+        assertNotNull(refreshed.idToken());
+        assertNull(refreshed.refreshToken());
+        assertTrue(core.introspect(new IntrospectRequest(refreshed.accessToken())).active());
+        assertNotNull(core.token(new TokenRequest(
+                "refresh_token", null, null, "my-client", "secret", first.refreshToken())).accessToken());
+    }
+
+    @Test
+    void refreshCanNarrowButNotWidenScopes() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().build());
+        String refreshToken = core.token(new TokenRequest(
+                "authorization_code", codeFor(core, Set.of("openid", "api")), null, "my-client", "secret"))
+                .refreshToken();
+
+        TokenResponse narrowed = core.token(new TokenRequest(
+                "refresh_token", null, "api", "my-client", "secret", refreshToken));
+
+        assertEquals("api", narrowed.scope());
+        assertNull(narrowed.idToken());
+        InvalidScopeException e = assertThrows(InvalidScopeException.class, () -> core.token(new TokenRequest(
+                "refresh_token", null, "api admin", "my-client", "secret", refreshToken)));
+        assertEquals("invalid_scope", e.error());
+        assertThrows(InvalidGrantException.class, () -> core.token(new TokenRequest(
+                "refresh_token", null, null, "other-client", "secret", refreshToken)));
+        assertThrows(InvalidGrantException.class, () -> core.token(new TokenRequest(
+                "refresh_token", null, null, "my-client", "secret", "never-issued")));
+    }
+
+    @Test
+    void reusingARotatedRefreshTokenRevokesItsFamily() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().rotateRefreshTokens(true).build());
+        String original = core.token(new TokenRequest(
+                "authorization_code", codeFor(core, Set.of("api")), null, "my-client", "secret")).refreshToken();
+        String unrelated = core.token(new TokenRequest(
+                "authorization_code", codeFor(core, Set.of("api")), null, "my-client", "secret")).refreshToken();
+
+        String rotated = core.token(new TokenRequest(
+                "refresh_token", null, null, "my-client", "secret", original)).refreshToken();
+        assertNotNull(rotated);
+        assertNotEquals(original, rotated);
+
+        InvalidGrantException e = assertThrows(InvalidGrantException.class, () -> core.token(new TokenRequest(
+                "refresh_token", null, null, "my-client", "secret", original)));
+        assertEquals("invalid_grant", e.error());
+        assertThrows(InvalidGrantException.class, () -> core.token(new TokenRequest(
+                "refresh_token", null, null, "my-client", "secret", rotated)));
+        assertNotNull(core.token(new TokenRequest(
+                "refresh_token", null, null, "my-client", "secret", unrelated)).refreshToken());
+    }
+
+    @Test
+    void refreshTokensAreNotIssuedWithoutATtl() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().refreshTokenTtlSeconds(0).build());
+
+        TokenResponse resp = core.token(new TokenRequest(
+                "authorization_code", codeFor(core, Set.of("openid")), null, "my-client", "secret"));
+
+        assertNull(resp.refreshToken());
+    }
+
+    @Test
+    void batchTokenRequestsAreAnsweredInOrder() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().build());
+        List<TokenRequest> requests = IntStream.range(0, 200)
+                .mapToObj(i -> new TokenRequest("client_credentials", null, "api:read", "svc-" + i, "secret"))
+                .collect(Collectors.toList());
+
+        List<TokenResponse> responses = core.tokens(requests);
+
+        assertEquals(requests.size(), responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals("svc-" + i, responses.get(i).clientId());
+            assertTrue(core.introspect(new IntrospectRequest(responses.get(i).accessToken())).active());
+        }
+    }
+
+    @Test
+    void batchTokenRequestsSurfaceFailures() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().build());
+        List<TokenRequest> requests = List.of(
+                new TokenRequest("client_credentials", null, "api:read", "c", "s"),
+                new TokenRequest("password", null, null, "c", "s"));
+        List<TokenResponse> delivered = new ArrayList<>();
+
+        assertThrows(UnsupportedGrantTypeException.class,
+                () -> core.tokens(requests, Runnable::run, 1, delivered::add));
+        assertEquals(1, delivered.size());
+    }
+
     @Test
     void unsupportedGrantTypeThrows() {
         FakeIdCore core = new FakeIdCore(Configuration.builder().build());
@@ -188,6 +526,160 @@ class FakeIdCoreTests {
         assertNotNull(resp.iat());
     }
 
+    @Test
+    void jwtAccessTokensAreSignedAndIntrospectedWithoutStorage() throws Exception {
+        RSAKey jwk = new RSAKeyGenerator(2048)
+                .keyUse(KeyUse.SIGNATURE)
+                .keyID("signingKey")
+                .algorithm(JWSAlgorithm.RS256)
+                .generate();
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .jwks(new JWKSet(jwk))
+                .claims(Map.of("sub", "jwt-subject"))
+                .jwtAccessTokens(true)
+                .build());
+
+        TokenResponse issued = core.token(new TokenRequest(
+                "client_credentials", null, "api:read api:write", "svc", "secret"));
+
+        SignedJWT accessToken = SignedJWT.parse(issued.accessToken());
+        assertEquals("at+jwt", accessToken.getHeader().getType().getType());
+        assertTrue(accessToken.verify(new RSASSAVerifier(jwk)));
+        JWTClaimsSet claims = accessToken.getJWTClaimsSet();
+        assertEquals("svc", claims.getSubject());
+        assertEquals("svc", claims.getStringClaim("client_id"));
+        assertNotNull(claims.getJWTID());
+
+        IntrospectResponse resp = core.introspect(new IntrospectRequest(issued.accessToken()));
+        assertTrue(resp.active());
+        assertEquals("svc", resp.clientId());
+        assertEquals("svc", resp.sub());
+        assertEquals(Set.of("api:read", "api:write"), Set.of(resp.scope().split(" ")));
+        assertEquals(claims.getExpirationTime().getTime() / 1000L, resp.exp());
+
+        String tampered = issued.accessToken().substring(0, issued.accessToken().length() - 4) + "AAAA";
+        assertFalse(core.introspect(new IntrospectRequest(tampered)).active());
+        assertFalse(core.introspect(new IntrospectRequest("not-a-jwt")).active());
+    }
+
+    @Test
+    void jwtAccessTokensFromAuthCodeCarryConfiguredSubject() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .claims(Map.of("sub", "code-subject"))
+                .jwtAccessTokens(true)
+                .build());
+
+        AuthorizeResponse authResp = core.authorize(new AuthorizeRequest(
+                "web", "https://app/cb", "code", Set.of("openid", "email"), null, null));
+        TokenResponse tokenResp = core.token(new TokenRequest(
+                "authorization_code", authResp.code(), null, "web", "ignored"));
+
+        IntrospectResponse resp = core.introspect(new IntrospectRequest(tokenResp.accessToken()));
+        assertTrue(resp.active());
+        assertEquals("web", resp.clientId());
+        assertEquals("code-subject", resp.sub());
+        assertEquals(Set.of("openid", "email"), Set.of(resp.scope().split(" ")));
+    }
+
+    @Test
+    void verifyIdTokenChecksAudienceAndNonce() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .claims(Map.of("sub", "verified-user"))
+                .build());
+        AuthorizeResponse resp = core.authorize(new AuthorizeRequest(
+                "rp", "https://app/cb", "id_token", Set.of("openid"), null, "expected-nonce"));
+
+        JWTClaimsSet claims = core.verifyIdToken(resp.idToken(), "rp", "expected-nonce");
+        assertEquals("verified-user", claims.getSubject());
+        assertEquals("verified-user", core.verifyIdToken(resp.idToken(), null, null).getSubject());
+
+        InvalidTokenException wrongAudience = assertThrows(InvalidTokenException.class,
+                () -> core.verifyIdToken(resp.idToken(), "other-rp", "expected-nonce"));
+        assertEquals("invalid_token", wrongAudience.error());
+        assertThrows(InvalidTokenException.class,
+                () -> core.verifyIdToken(resp.idToken(), "rp", "replayed-nonce"));
+        assertThrows(InvalidTokenException.class,
+                () -> core.verifyIdToken("garbage", "rp", null));
+    }
+
+    @Test
+    void verifyIdTokenRejectsTokensFromAnotherInstance() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().build());
+        FakeIdCore other = new FakeIdCore(Configuration.builder().build());
+        AuthorizeResponse resp = other.authorize(new AuthorizeRequest(
+                "rp", "https://app/cb", "id_token", Set.of("openid"), null, null));
+
+        assertThrows(InvalidTokenException.class, () -> core.verifyIdToken(resp.idToken(), "rp", null));
+    }
+
+    @Test
+    void verifyAccessTokenCoversOpaqueAndJwtTokens() {
+        FakeIdCore opaque = new FakeIdCore(Configuration.builder().build());
+        FakeIdCore jwt = new FakeIdCore(Configuration.builder().jwtAccessTokens(true).build());
+        TokenRequest request = new TokenRequest("client_credentials", null, "api:read", "svc", "secret");
+
+        assertEquals("svc", opaque.verifyAccessToken(opaque.token(request).accessToken()).getClaim("client_id"));
+        assertEquals("svc", jwt.verifyAccessToken(jwt.token(request).accessToken()).getClaim("client_id"));
+        assertThrows(InvalidTokenException.class, () -> opaque.verifyAccessToken("unknown"));
+        assertThrows(InvalidTokenException.class, () -> jwt.verifyAccessToken("unknown"));
+
+        AuthorizeResponse resp = jwt.authorize(new AuthorizeRequest(
+                "rp", "https://app/cb", "id_token", Set.of("openid"), null, null));
+        assertThrows(InvalidTokenException.class, () -> jwt.verifyAccessToken(resp.idToken()));
+    }
+
+    @Test
+    void sharedGrantStoreLetsInstancesIntrospectEachOthersTokens(@TempDir Path tmp) {
+        Configuration first = Configuration.builder().grantStoreDirectory(tmp).build();
+        Configuration second = Configuration.builder().grantStoreDirectory(tmp).jwks(first.getJwks()).build();
+        try (FakeIdCore issuer = new FakeIdCore(first); FakeIdCore other = new FakeIdCore(second)) {
+            String accessToken = issuer.token(
+                    new TokenRequest("client_credentials", null, "api", "svc", "secret")).accessToken();
+
+            IntrospectResponse resp = other.introspect(new IntrospectRequest(accessToken));
+
+            assertTrue(resp.active());
+            assertEquals("svc", resp.clientId());
+        }
+    }
+
+    @Test
+    void configuredStoresReplaceTheDefaults() {
+        ShardedIssuedGrantStore issuedGrants = new ShardedIssuedGrantStore();
+        Configuration cfg = Configuration.builder()
+                .storeProvider("expiring")
+                .issuedGrantStore(issuedGrants)
+                .build();
+        try (FakeIdCore core = new FakeIdCore(cfg)) {
+            String accessToken = core.token(
+                    new TokenRequest("client_credentials", null, "api", "svc", "secret")).accessToken();
+
+            assertEquals("svc", issuedGrants.findByAccessToken(accessToken).orElseThrow().getClientId());
+            assertTrue(core.introspect(new IntrospectRequest(accessToken)).active());
+        }
+    }
+
+    @Test
+    void providerStoresAreOnlyBuiltWhenNothingIsConfigured() {
+        RecordingStoreProvider.ASKED.clear();
+        Configuration cfg = Configuration.builder()
+                .storeProvider("recording")
+                .issuedGrantStore(new ShardedIssuedGrantStore())
+                .build();
+
+        new FakeIdCore(cfg).close();
+
+        assertEquals(Set.of("pending grant"), RecordingStoreProvider.ASKED);
+    }
+
+    @Test
+    void unknownStoreProviderIsRejected() {
+        Configuration cfg = Configuration.builder().storeProvider("no-such-store").build();
+
+        ConfigurationException e = assertThrows(ConfigurationException.class, () -> new FakeIdCore(cfg));
+        assertEquals("Unknown store provider: no-such-store", e.getMessage());
+    }
+
     @Test
     void introspectUnknownTokenIsInactive() {
         FakeIdCore core = new FakeIdCore(Configuration.builder().build());
@@ -207,6 +699,8 @@ class FakeIdCoreTests {
         FakeIdCore core = new FakeIdCore(cfg);
 
         assertEquals("https://fake.example.test", core.discovery().getIssuer());
+        assertEquals("https://fake.example.test", core.discoveryMetadata().get("issuer"));
+        assertEquals(List.of("RS256"), core.discoveryMetadata().get("id_token_signing_alg_values_supported"));
     }
 
     @Test
@@ -218,6 +712,101 @@ class FakeIdCoreTests {
         assertNotNull(jwks.get("keys"));
     }
 
+    @Test
+    void rotatedKeysArePublishedBeforeUseAndKeptThroughOverlap() throws Exception {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().build());
+        AuthorizeRequest request = new AuthorizeRequest("rp", "https://app/cb", "id_token", Set.of("openid"), null, null);
+        String before = core.authorize(request).idToken();
+        assertEquals(List.of("signingKey"), keyIds(core));
+
+        core.rotateSigningKey();
+        String after = core.authorize(request).idToken();
+        String afterKeyId = SignedJWT.parse(after).getHeader().getKeyID();
+        List<String> published = keyIds(core);
+        assertEquals(3, published.size());
+        assertTrue(published.containsAll(List.of("signingKey", afterKeyId)));
+        assertNotNull(core.verifyIdToken(before, "rp", null));
+        assertNotNull(core.verifyIdToken(after, "rp", null));
+
+        String upcoming = published.stream()
+                .filter(kid -> !kid.equals("signingKey") && !kid.equals(afterKeyId))
+                .findFirst().orElseThrow();
+        core.rotateSigningKey();
+        assertEquals(upcoming, SignedJWT.parse(core.authorize(request).idToken()).getHeader().getKeyID());
+    }
+
+    @Test
+    void retiredKeysLeaveTheJwksAfterOverlap() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .jwtAccessTokens(true)
+                .keyOverlapSeconds(0)
+                .build());
+        String accessToken = core.token(new TokenRequest("client_credentials", null, "api", "svc", "secret")).accessToken();
+
+        core.rotateSigningKey();
+
+        assertFalse(keyIds(core).contains("signingKey"));
+        assertThrows(InvalidTokenException.class, () -> core.verifyAccessToken(accessToken));
+        assertFalse(core.introspect(new IntrospectRequest(accessToken)).active());
+    }
+
+    @Test
+    void retiredKeysLeaveTheJwksWhenTheOverlapEndsWithoutAnotherRotation() throws Exception {
+        try (FakeIdCore core = new FakeIdCore(Configuration.builder().keyOverlapSeconds(1).build())) {
+            core.rotateSigningKey();
+            assertTrue(keyIds(core).contains("signingKey"));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (keyIds(core).contains("signingKey") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertFalse(keyIds(core).contains("signingKey"));
+            assertEquals(2, keyIds(core).size());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void jwksCannotBeModified() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder().build());
+
+        assertThrows(UnsupportedOperationException.class, () -> core.jwks().put("keys", List.of()));
+        List<Map<String, Object>> keys = (List<Map<String, Object>>) core.jwks().get("keys");
+        assertThrows(UnsupportedOperationException.class, () -> keys.add(Map.of()));
+        assertThrows(UnsupportedOperationException.class, () -> keys.get(0).put("kid", "forged"));
+    }
+
+    @Test
+    void scheduledRotationPrePublishesNextKey() throws Exception {
+        try (FakeIdCore core = new FakeIdCore(Configuration.builder().keyRotationSeconds(3600).build())) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (keyIds(core).size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, keyIds(core).size());
+            String idToken = core.authorize(new AuthorizeRequest(
+                    "rp", "https://app/cb", "id_token", Set.of("openid"), null, null)).idToken();
+            assertEquals("signingKey", SignedJWT.parse(idToken).getHeader().getKeyID());
+        }
+    }
+
+    @Test
+    void keyRotationIsRejectedForHmac() {
+        Configuration cfg = Configuration.builder()
+                .signingAlgorithm(JWSAlgorithm.HS256)
+                .keyRotationSeconds(60)
+                .build();
+
+        assertThrows(ConfigurationException.class, () -> new FakeIdCore(cfg));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> keyIds(FakeIdCore core) {
+        return ((List<Map<String, Object>>) core.jwks().get("keys")).stream()
+                .map(key -> (String) key.get("kid"))
+                .collect(Collectors.toList());
+    }
+
     @Test
     void userInfoReturnsConfiguredClaims() {
         Map<String, Object> configured = Map.of(
@@ -232,4 +821,214 @@ class FakeIdCoreTests {
         assertEquals("alice@example.com", claims.get("email"));
         assertEquals("whatever", claims.get("custom_claim"));
     }
+
+    @Test
+    void loginHintPicksTheUserFromTheUsersFile(@TempDir Path tmp) throws Exception {
+        Path users = Files.writeString(tmp.resolve("users.jsonl"), """
+                {"sub":"alice","email":"alice@example.com","name":"Alice"}
+                {"sub":"bob","email":"bob@example.com","name":"Bob"}
+                """);
+        FakeIdCore core = new FakeIdCore(Configuration.builder().usersFile(users).build());
+
+        AuthorizeResponse authResp = core.authorize(new AuthorizeRequest(
+                "web", "https://app/cb", "code", Set.of("openid"), null, "n", "bob@example.com"));
+        TokenResponse tokenResp = core.token(new TokenRequest(
+                "authorization_code", authResp.code(), null, "web", "ignored"));
+
+        JWTClaimsSet idToken = core.verifyIdToken(tokenResp.idToken(), "web", "n");
+        assertEquals("bob", idToken.getSubject());
+        assertEquals("Bob", idToken.getClaim("name"));
+        assertEquals("bob", core.introspect(new IntrospectRequest(tokenResp.accessToken())).sub());
+        assertEquals("bob", core.verifyAccessToken(tokenResp.accessToken()).getSubject());
+        assertEquals("Bob", core.userInfo(tokenResp.accessToken()).get("name"));
+    }
+
+    @Test
+    void usersWithoutALoginHintAreSignedInInTurn() {
+        UserDirectory directory = new UserDirectory() {
+            final List<Map<String, Object>> users = List.of(Map.of("sub", "u0"), Map.of("sub", "u1"));
+
+            @Override
+            public int size() {
+                return users.size();
+            }
+
+            @Override
+            public Map<String, Object> get(int index) {
+                return users.get(index);
+            }
+
+            @Override
+            public Optional<Map<String, Object>> findBySubject(String subject) {
+                return users.stream().filter(u -> u.get("sub").equals(subject)).findFirst();
+            }
+        };
+        FakeIdCore core = new FakeIdCore(Configuration.builder().userDirectory(directory).build());
+
+        List<String> subjects = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            TokenResponse resp = core.token(new TokenRequest(
+                    "authorization_code", codeFor(core, Set.of("openid")), null, "my-client", "ignored"));
+            subjects.add(core.introspect(new IntrospectRequest(resp.accessToken())).sub());
+        }
+
+        assertEquals(List.of("u0", "u1", "u0"), subjects);
+        assertThrows(InvalidTokenException.class, () -> core.userInfo("not-a-token"));
+        assertThrows(InvalidTokenException.class, () -> core.userInfoResponse("not-a-token"));
+    }
+
+    @Test
+    void syntheticUsersSignInByLoginHint() {
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .syntheticUsers(10_000_000)
+                .syntheticUserSeed(99)
+                .build());
+
+        AuthorizeResponse authResp = core.authorize(new AuthorizeRequest(
+                "web", "https://app/cb", "code", Set.of("openid"), null, null, "user-1234567"));
+        TokenResponse tokenResp = core.token(new TokenRequest(
+                "authorization_code", authResp.code(), null, "web", "ignored"));
+
+        Map<String, Object> claims = core.userInfo(tokenResp.accessToken());
+        assertEquals("user-1234567", claims.get("sub"));
+        assertTrue(claims.get("email").toString().endsWith(".1234567@example.com"));
+    }
+
+    @Test
+    void claimTemplatesAreWorkedOutForEachIdToken() throws Exception {
+        for (boolean templatedIdTokens : new boolean[]{false, true}) {
+            FakeIdCore core = new FakeIdCore(Configuration.builder()
+                    .templatedIdTokens(templatedIdTokens)
+                    .claimTemplates(Map.of(
+                            "auth_time", "${auth_time}",
+                            "tenant", "tenant-${client_id}",
+                            "sid", "${random}",
+                            "login_number", "${counter}"))
+                    .build());
+
+            long before = System.currentTimeMillis() / 1000L;
+            List<JWTClaimsSet> idTokens = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                TokenResponse resp = core.token(new TokenRequest(
+                        "authorization_code", codeFor(core, Set.of("openid")), null, "my-client", "ignored"));
+                idTokens.add(SignedJWT.parse(resp.idToken()).getJWTClaimsSet());
+            }
+
+            JWTClaimsSet first = idTokens.get(0);
+            assertEquals("tenant-my-client", first.getStringClaim("tenant"));
+            assertTrue(first.getLongClaim("auth_time") >= before);
+            assertEquals(1L, first.getLongClaim("login_number"));
+            assertEquals(2L, idTokens.get(1).getLongClaim("login_number"));
+            assertNotEquals(first.getStringClaim("sid"), idTokens.get(1).getStringClaim("sid"));
+        }
+    }
+
+    @Test
+    void refreshedIdTokensKeepTheOriginalAuthTime() throws Exception {
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .rotateRefreshTokens(true)
+                .claimTemplates(Map.of("auth_time", "${auth_time}"))
+                .build());
+        TokenResponse first = core.token(new TokenRequest(
+                "authorization_code", codeFor(core, Set.of("openid")), null, "my-client", "secret"));
+        long authTime = SignedJWT.parse(first.idToken()).getJWTClaimsSet().getLongClaim("auth_time");
+
+        Thread.sleep(1100);
+        TokenResponse refreshed = core.token(new TokenRequest(
+                "refresh_token", null, null, "my-client", "secret", first.refreshToken()));
+        TokenResponse again = core.token(new TokenRequest(
+                "refresh_token", null, null, "my-client", "secret", refreshed.refreshToken()));
+
+        assertEquals(authTime, SignedJWT.parse(refreshed.idToken()).getJWTClaimsSet().getLongClaim("auth_time"));
+        assertEquals(authTime, SignedJWT.parse(again.idToken()).getJWTClaimsSet().getLongClaim("auth_time"));
+    }
+
+    @Test
+    void claimsCanBeFilteredByTheGrantedScopes() throws Exception {
+        Map<String, Object> alice = Map.of(
+                "sub", "alice",
+                "name", "Alice",
+                "email", "alice@example.com",
+                "groups", List.of("admins"),
+                "magicClaim", "Perform magic");
+        for (boolean templatedIdTokens : new boolean[]{false, true}) {
+            FakeIdCore core = new FakeIdCore(Configuration.builder()
+                    .claims(alice)
+                    .templatedIdTokens(templatedIdTokens)
+                    .filterClaimsByScope(true)
+                    .scopeClaims(Map.of("groups", List.of("groups")))
+                    .build());
+
+            TokenResponse openidOnly = core.token(new TokenRequest(
+                    "authorization_code", codeFor(core, Set.of("openid")), null, "my-client", "ignored"));
+            JWTClaimsSet small = SignedJWT.parse(openidOnly.idToken()).getJWTClaimsSet();
+            assertEquals("alice", small.getSubject());
+            assertEquals("Perform magic", small.getStringClaim("magicClaim"));
+            assertNull(small.getClaim("name"));
+            assertNull(small.getClaim("email"));
+            assertNull(small.getClaim("groups"));
+
+            TokenResponse wider = core.token(new TokenRequest(
+                    "authorization_code", codeFor(core, Set.of("openid", "email", "groups")), null, "my-client", "ignored"));
+            JWTClaimsSet large = SignedJWT.parse(wider.idToken()).getJWTClaimsSet();
+            assertEquals("alice@example.com", large.getStringClaim("email"));
+            assertEquals(List.of("admins"), large.getStringListClaim("groups"));
+            assertNull(large.getClaim("name"));
+
+            assertEquals(Set.of("sub", "email", "groups", "magicClaim"), core.userInfo(wider.accessToken()).keySet());
+            assertEquals(alice, core.userInfo());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void userInfoResponsesAreSerializedOncePerSubjectAndScopes() throws Exception {
+        FakeIdCore core = new FakeIdCore(Configuration.builder()
+                .claims(Map.of("sub", "alice", "name", "Alice", "email", "alice@example.com"))
+                .filterClaimsByScope(true)
+                .build());
+        String first = core.token(new TokenRequest(
+                "authorization_code", codeFor(core, Set.of("openid", "email")), null, "my-client", "ignored")).accessToken();
+        String second = core.token(new TokenRequest(
+                "authorization_code", codeFor(core, Set.of("email", "openid")), null, "my-client", "ignored")).accessToken();
+        String profile = core.token(new TokenRequest(
+                "authorization_code", codeFor(core, Set.of("openid", "profile")), null, "my-client", "ignored")).accessToken();
+
+        UserInfoResponse response = core.userInfoResponse(first);
+
+        assertSame(response, core.userInfoResponse(second));
+        assertNotEquals(response.etag(), core.userInfoResponse(profile).etag());
+        Map<String, Object> body = new ObjectMapper().readValue(response.body(), Map.class);
+        assertEquals(core.userInfo(first), body);
+        assertEquals(core.userInfo(), new ObjectMapper().readValue(core.userInfoResponse().body(), Map.class));
+        // with only the configured user, a token from before a restart still gets its claims
+        assertSame(core.userInfoResponse(), core.userInfoResponse("not-a-token"));
+    }
+
+    @Test
+    void userInfoResponsesLeaveOutClaimsWithoutAValue() {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", "alice");
+        claims.put("middle_name", null);
+        FakeIdCore core = new FakeIdCore(Configuration.builder().claims(claims).build());
+
+        assertEquals("{\"sub\":\"alice\"}", new String(core.userInfoResponse().body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void userInfoResponsesMatchTheirEntityTags() {
+        UserInfoResponse response = new FakeIdCore(Configuration.builder().build()).userInfoResponse();
+
+        assertTrue(response.etag().startsWith("\"") && response.etag().endsWith("\""));
+        assertTrue(response.matches(response.etag()));
+        assertTrue(response.matches("\"other\", W/" + response.etag()));
+        assertTrue(response.matches("*"));
+        assertFalse(response.matches("\"other\""));
+        assertFalse(response.matches(null));
+    }
+
+    private static String codeFor(FakeIdCore core, Set<String> scopes) {
+        return core.authorize(new AuthorizeRequest(
+                "my-client", "https://app.example/cb", "code", scopes, "state", null)).code();
+    }
 }
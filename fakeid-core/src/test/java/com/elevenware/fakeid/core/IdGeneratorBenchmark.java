@@ -0,0 +1,102 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Identifiers per second from the previous generators and {@link SecureIdGenerator},
+ * with every thread generating flat out. Run with {@code mvn test -P benchmark}.
+ */
+@Tag("Benchmark")
+class IdGeneratorBenchmark {
+
+    private static final int[] THREADS = {1, 4, 16, 64};
+    private static final long RUN_MILLIS = 1000;
+
+    @Test
+    void identifiersPerSecond() throws Exception {
+        SecureIdGenerator ids = new SecureIdGenerator();
+        Map<String, Supplier<String>> candidates = new LinkedHashMap<>();
+        candidates.put("alnum(32)", () -> RandomStringUtils.randomAlphanumeric(32));
+        candidates.put("token", ids::accessToken);
+        candidates.put("UUID", () -> UUID.randomUUID().toString());
+        candidates.put("grantId", ids::grantId);
+
+        for (Supplier<String> candidate : candidates.values()) {
+            run(candidate, Runtime.getRuntime().availableProcessors());
+        }
+        StringBuilder header = new StringBuilder(String.format("%-8s", "threads"));
+        candidates.keySet().forEach(name -> header.append(String.format(" %12s", name)));
+        System.out.println(header);
+        for (int threads : THREADS) {
+            StringBuilder row = new StringBuilder(String.format("%-8d", threads));
+            for (Supplier<String> candidate : candidates.values()) {
+                long generated = run(candidate, threads);
+                assertTrue(generated > 0);
+                row.append(String.format(" %12d", generated * 1000 / RUN_MILLIS));
+            }
+            System.out.println(row + "  ids/s");
+        }
+    }
+
+    private static long run(Supplier<String> generator, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> counts = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            counts.add(executor.submit(() -> {
+                start.await();
+                long deadline = System.currentTimeMillis() + RUN_MILLIS;
+                long count = 0;
+                while (System.currentTimeMillis() < deadline) {
+                    for (int i = 0; i < 64; i++) {
+                        generator.get();
+                    }
+                    count += 64;
+                }
+                return count;
+            }));
+        }
+        start.countDown();
+        long total = 0;
+        for (Future<Long> count : counts) {
+            total += count.get();
+        }
+        executor.shutdown();
+        return total;
+    }
+}
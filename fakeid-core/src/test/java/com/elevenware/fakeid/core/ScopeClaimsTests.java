@@ -0,0 +1,69 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ScopeClaimsTests {
+
+    private static final Map<String, Object> ALICE = Map.of(
+            "sub", "alice",
+            "name", "Alice",
+            "email", "alice@example.com",
+            "email_verified", true,
+            "groups", List.of("admins"),
+            "shoe_size", 5);
+
+    private final ScopeRegistry registry = new ScopeRegistry(Set.of("openid", "profile", "email"));
+    private final ScopeClaims scopeClaims = new ScopeClaims(Map.of("groups", List.of("groups")), ALICE);
+
+    @Test
+    void scopesReleaseTheirClaims() {
+        assertEquals(Set.of("sub", "shoe_size"), filter("openid").keySet());
+        assertEquals(Set.of("sub", "shoe_size", "email", "email_verified"), filter("openid email").keySet());
+        assertEquals(Set.of("sub", "shoe_size", "name", "groups"), filter("openid profile groups").keySet());
+    }
+
+    @Test
+    void claimsAreReturnedAsTheyAreWhenNothingIsWithheld() {
+        Map<String, Object> claims = Map.of("sub", "bob", "email", "bob@example.com");
+
+        assertSame(claims, scopeClaims.filter(claims, registry.parse("openid email")));
+        assertSame(ALICE, scopeClaims.filter(ALICE, registry.parse("openid profile email groups")));
+    }
+
+    @Test
+    void theConfiguredUsersClaimsAreFilteredOncePerScopeSet() {
+        assertSame(filter("openid email"), filter("email openid"));
+        assertEquals(Set.of("profile", "email", "address", "phone", "groups"), scopeClaims.scopes());
+    }
+
+    private Map<String, Object> filter(String scope) {
+        return scopeClaims.filter(ALICE, registry.parse(scope));
+    }
+}
@@ -0,0 +1,107 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScopeRegistryTests {
+
+    private final ScopeRegistry registry = new ScopeRegistry(List.of("openid", "profile", "email"));
+
+    @Test
+    void equalScopeStringsShareOneInstance() {
+        ScopeSet first = registry.parse("email openid");
+        ScopeSet second = registry.parse("openid  email openid");
+
+        assertSame(first, second);
+        assertSame(first, registry.of(Set.of("openid", "email")));
+        assertSame(first, registry.of(Set.of("email openid")));
+        assertEquals("openid email", first.value());
+        assertEquals(Set.of("openid", "email"), first);
+        assertEquals(first, Set.of("openid", "email"));
+        assertEquals(Set.of("openid", "email").hashCode(), first.hashCode());
+    }
+
+    @Test
+    void containsMatchesWholeScopeNames() {
+        ScopeSet scopes = registry.parse("notopenid openidx api:read");
+
+        assertFalse(scopes.contains("openid"));
+        assertTrue(scopes.contains("notopenid"));
+        assertTrue(scopes.contains("api:read"));
+        assertFalse(scopes.contains("never-seen"));
+        assertEquals(3, scopes.size());
+    }
+
+    @Test
+    void scopesBeyondOneWordOfBitsAreKept() {
+        List<String> advertised = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            advertised.add("scope-" + i);
+        }
+        ScopeRegistry registry = new ScopeRegistry(advertised);
+        ScopeSet scopes = registry.parse(String.join(" ", advertised));
+
+        assertEquals(200, scopes.size());
+        assertTrue(scopes.contains("scope-199"));
+        assertFalse(scopes.contains("openid"));
+        assertSame(scopes, registry.of(scopes));
+    }
+
+    @Test
+    void unregisteredScopesDontGrowTheRegistry() {
+        ScopeSet scopes = registry.parse("write email read");
+
+        assertEquals(-1, registry.indexOf("read"));
+        assertEquals("email read write", scopes.value());
+        assertTrue(scopes.contains("write"));
+        assertFalse(scopes.contains("openid"));
+        assertSame(scopes, registry.parse("read write email"));
+        assertSame(scopes, registry.of(Set.of("read", "email", "write")));
+        assertEquals(Set.of("email", "read", "write"), scopes);
+        assertFalse(scopes.equals(registry.parse("email read")));
+    }
+
+    @Test
+    void missingScopesAreTheEmptySet() {
+        assertSame(registry.parse(null), registry.parse(" "));
+        assertSame(registry.parse(null), registry.of(null));
+        assertEquals("", registry.parse(null).value());
+    }
+
+    @Test
+    void scopeSetsCannotBeModified() {
+        ScopeSet scopes = registry.parse("openid");
+
+        assertThrows(UnsupportedOperationException.class, () -> scopes.add("email"));
+        assertThrows(UnsupportedOperationException.class, () -> scopes.iterator().remove());
+    }
+}
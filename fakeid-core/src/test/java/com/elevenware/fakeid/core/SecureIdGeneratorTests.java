@@ -0,0 +1,96 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SecureIdGeneratorTests {
+
+    private final SecureIdGenerator ids = new SecureIdGenerator();
+
+    @Test
+    void codesAndTokensAreUnpaddedBase64Url() {
+        for (int i = 0; i < 1000; i++) {
+            String code = ids.authorizationCode();
+            String token = ids.accessToken();
+
+            assertTrue(code.matches("[A-Za-z0-9_-]{16}"), code);
+            assertTrue(token.matches("[A-Za-z0-9_-]{32}"), token);
+            assertEquals(12, Base64.getUrlDecoder().decode(code).length);
+            assertEquals(24, Base64.getUrlDecoder().decode(token).length);
+        }
+    }
+
+    @Test
+    void grantIdsAreRandomUuids() {
+        String id = ids.grantId();
+        UUID uuid = UUID.fromString(id);
+
+        assertEquals(4, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(uuid.toString(), id);
+    }
+
+    @Test
+    void threadsSharingBuffersNeverGetTheSameIdentifier() throws Exception {
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 64; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        assertTrue(seen.add(ids.accessToken()));
+                        assertTrue(seen.add(ids.grantId()));
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(64 * 2_000 * 2, seen.size());
+    }
+
+    @Test
+    void identifiersDoNotRepeatAcrossBufferRefills() {
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(seen.add(ids.accessToken()));
+        }
+    }
+}
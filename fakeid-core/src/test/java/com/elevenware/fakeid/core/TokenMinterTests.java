@@ -0,0 +1,156 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.core.dto.IdTokenRequest;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenMinterTests {
+
+    @Test
+    void headerCarriesKeyIdAndAlgorithm() throws Exception {
+        RSAKey jwk = new RSAKeyGenerator(2048)
+                .keyUse(KeyUse.SIGNATURE)
+                .keyID("signingKey")
+                .algorithm(JWSAlgorithm.PS256)
+                .generate();
+        TokenMinter minter = new TokenMinter(jwk, "https://issuer.example");
+
+        SignedJWT idToken = SignedJWT.parse(minter.mintIdToken("alice", "client", null, Map.of("sub", "alice")));
+
+        assertEquals(JWSAlgorithm.PS256, idToken.getHeader().getAlgorithm());
+        assertEquals("signingKey", idToken.getHeader().getKeyID());
+        assertTrue(idToken.verify(new RSASSAVerifier(jwk)));
+    }
+
+    @Test
+    void sharedMinterSignsConcurrently() throws Exception {
+        RSAKey jwk = new RSAKeyGenerator(2048)
+                .keyUse(KeyUse.SIGNATURE)
+                .keyID("signingKey")
+                .algorithm(JWSAlgorithm.RS256)
+                .generate();
+        TokenMinter minter = new TokenMinter(jwk, "https://issuer.example");
+        RSASSAVerifier verifier = new RSASSAVerifier(jwk);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                String nonce = "nonce-" + i;
+                futures.add(executor.submit(() -> minter.mintIdToken("alice", "client", nonce, Map.of("sub", "alice"))));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                SignedJWT idToken = SignedJWT.parse(futures.get(i).get());
+                assertTrue(idToken.verify(verifier));
+                assertEquals("nonce-" + i, idToken.getJWTClaimsSet().getStringClaim("nonce"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void templatedIdTokenMatchesRegularIdToken() throws Exception {
+        RSAKey jwk = new RSAKeyGenerator(2048)
+                .keyUse(KeyUse.SIGNATURE)
+                .keyID("signingKey")
+                .algorithm(JWSAlgorithm.RS256)
+                .generate();
+        TokenMinter minter = new TokenMinter(jwk, "https://issuer.example");
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", "alice");
+        claims.put("name", "Alice \"Ally\" Smith");
+        claims.put("groups", IntStream.range(0, 500).mapToObj(i -> "group-" + i).collect(Collectors.toList()));
+        claims.put("address", Map.of("locality", "Z\u00fcrich"));
+
+        for (String nonce : new String[]{null, "n", "nonce-\u00fc\\\"\n"}) {
+            SignedJWT regular = SignedJWT.parse(minter.mintIdToken("alice", "client", nonce, claims));
+            SignedJWT templated = SignedJWT.parse(minter.idTokenTemplate("alice", claims).mint("client", nonce));
+
+            assertTrue(templated.verify(new RSASSAVerifier(jwk)));
+            assertEquals(regular.getHeader().toJSONObject(), templated.getHeader().toJSONObject());
+            JWTClaimsSet expected = regular.getJWTClaimsSet();
+            JWTClaimsSet actual = templated.getJWTClaimsSet();
+            assertEquals(expected.getClaims().keySet(), actual.getClaims().keySet());
+            assertEquals(expected.getSubject(), actual.getSubject());
+            assertEquals(expected.getIssuer(), actual.getIssuer());
+            assertEquals(expected.getAudience(), actual.getAudience());
+            assertEquals(expected.getStringClaim("nonce"), actual.getStringClaim("nonce"));
+            assertEquals(expected.getStringClaim("name"), actual.getStringClaim("name"));
+            assertEquals(expected.getStringListClaim("groups"), actual.getStringListClaim("groups"));
+            assertEquals(expected.getJSONObjectClaim("address"), actual.getJSONObjectClaim("address"));
+            assertEquals(3600L, (actual.getExpirationTime().getTime() - actual.getIssueTime().getTime()) / 1000L);
+        }
+    }
+
+    @Test
+    void batchMintingPreservesRequestOrder() throws Exception {
+        RSAKey jwk = new RSAKeyGenerator(2048)
+                .keyUse(KeyUse.SIGNATURE)
+                .keyID("signingKey")
+                .algorithm(JWSAlgorithm.RS256)
+                .generate();
+        TokenMinter minter = new TokenMinter(jwk, "https://issuer.example");
+        List<IdTokenRequest> requests = IntStream.range(0, 100)
+                .mapToObj(i -> new IdTokenRequest("user-" + i, "client", "nonce-" + i, Map.of("sub", "user-" + i)))
+                .collect(Collectors.toList());
+
+        List<String> streamed = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            minter.mintIdTokens(requests, executor, 3, streamed::add);
+        } finally {
+            executor.shutdownNow();
+        }
+        List<String> collected = minter.mintIdTokens(requests);
+
+        assertEquals(requests.size(), streamed.size());
+        assertEquals(requests.size(), collected.size());
+        for (int i = 0; i < requests.size(); i++) {
+            for (String token : List.of(streamed.get(i), collected.get(i))) {
+                JWTClaimsSet claims = SignedJWT.parse(token).getJWTClaimsSet();
+                assertEquals("user-" + i, claims.getSubject());
+                assertEquals("nonce-" + i, claims.getStringClaim("nonce"));
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.elevenware.fakeid.core;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenPoolTests {
+
+    @Test
+    void refillsToWatermarkAndServesPreMintedTokens() throws Exception {
+        AtomicInteger minted = new AtomicInteger();
+        try (TokenPool pool = new TokenPool(5, Duration.ofMinutes(1))) {
+            String first = pool.take("key", () -> "token-" + minted.incrementAndGet());
+
+            awaitAvailable(pool, "key", 5);
+            assertEquals(6, minted.get());
+
+            Set<String> handedOut = new HashSet<>();
+            handedOut.add(first);
+            for (int i = 0; i < 5; i++) {
+                handedOut.add(pool.take("key", () -> "inline"));
+            }
+            assertEquals(Set.of("token-1", "token-2", "token-3", "token-4", "token-5", "token-6"), handedOut);
+        }
+    }
+
+    @Test
+    void keysArePooledSeparately() throws Exception {
+        try (TokenPool pool = new TokenPool(2, Duration.ofMinutes(1))) {
+            pool.take("a", () -> "a");
+            pool.take("b", () -> "b");
+            awaitAvailable(pool, "a", 2);
+            awaitAvailable(pool, "b", 2);
+
+            assertEquals("a", pool.take("a", () -> "inline"));
+            assertEquals("b", pool.take("b", () -> "inline"));
+        }
+    }
+
+    @Test
+    void staleTokensAreNeverHandedOut() throws Exception {
+        AtomicInteger minted = new AtomicInteger();
+        try (TokenPool pool = new TokenPool(3, Duration.ofMillis(200))) {
+            pool.take("key", () -> "token-" + minted.incrementAndGet());
+            awaitAvailable(pool, "key", 3);
+            int generation = minted.get();
+
+            Thread.sleep(500);
+
+            String token = pool.take("key", () -> "token-" + minted.incrementAndGet());
+            assertTrue(Integer.parseInt(token.substring("token-".length())) > generation);
+        }
+    }
+
+    @Test
+    void keysNothingIsTakenFromAreDropped() throws Exception {
+        try (TokenPool pool = new TokenPool(3, Duration.ofMillis(200))) {
+            pool.take("once", () -> "token");
+            awaitAvailable(pool, "once", 3);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.available("once") > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, pool.available("once"));
+        }
+    }
+
+    private static void awaitAvailable(TokenPool pool, String key, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.available(key) < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, pool.available(key));
+    }
+}
@@ -0,0 +1,128 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactIssuedGrantStoreTests {
+
+    @Test
+    void idsThatAreNotCanonicalUuidsRoundTrip() {
+        CompactIssuedGrantStore store = new CompactIssuedGrantStore();
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        store.save(grant("grant-1", "plain", "ü-refresh", expiresAt));
+        store.save(grant("6BA7B810-9DAD-11D1-80B4-00C04FD430C8", "upper", null, expiresAt));
+
+        IssuedGrant plain = store.findByAccessToken("plain").orElseThrow();
+        assertEquals("grant-1", plain.getId());
+        assertEquals("ü-refresh", plain.getRefreshToken());
+        IssuedGrant upper = store.findByAccessToken("upper").orElseThrow();
+        assertEquals("6BA7B810-9DAD-11D1-80B4-00C04FD430C8", upper.getId());
+        assertNull(upper.getRefreshToken());
+    }
+
+    @Test
+    void subjectsAreKeptForGrantsThatCarryThem() {
+        CompactIssuedGrantStore store = new CompactIssuedGrantStore();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        store.save(new SubjectIssuedGrant("a", "web", "authorization_code", Set.of("openid"),
+                "alice-token", null, "alice", now, now.plusSeconds(60)));
+        store.save(new SubjectIssuedGrant("c", "web", "authorization_code", Set.of("openid"),
+                "bob-token", "bob-refresh", "bob", now, now.plusSeconds(60)));
+        store.save(grant("b", "anonymous", null, now.plusSeconds(60)));
+
+        assertEquals("alice", SubjectIssuedGrant.subjectOf(store.findByAccessToken("alice-token").orElseThrow()));
+        IssuedGrant bob = store.findByAccessToken("bob-token").orElseThrow();
+        assertEquals("bob", SubjectIssuedGrant.subjectOf(bob));
+        assertEquals("bob-refresh", bob.getRefreshToken());
+        assertNull(SubjectIssuedGrant.subjectOf(store.findByAccessToken("anonymous").orElseThrow()));
+    }
+
+    @Test
+    void scopeSetsAreSharedBetweenGrants() {
+        CompactIssuedGrantStore store = new CompactIssuedGrantStore();
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        store.save(grant("a", "first", null, expiresAt));
+        store.save(grant("b", "second", null, expiresAt));
+
+        assertSame(store.findByAccessToken("first").orElseThrow().getGrantedScopes(),
+                store.findByAccessToken("second").orElseThrow().getGrantedScopes());
+    }
+
+    @Test
+    void savingATokenAgainReplacesIt() {
+        CompactIssuedGrantStore store = new CompactIssuedGrantStore();
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        store.save(grant("old", "token", null, expiresAt));
+        store.save(grant("new", "token", null, expiresAt));
+
+        assertEquals("new", store.findByAccessToken("token").orElseThrow().getId());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void expiredRowsAreReclaimedAsTheTableGrows() {
+        CompactIssuedGrantStore store = new CompactIssuedGrantStore();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        for (int i = 0; i < 50_000; i++) {
+            Instant expiresAt = i % 2 == 0 ? now.minusSeconds(5) : now.plusSeconds(600);
+            store.save(grant("id-" + i, "token-" + i, null, expiresAt));
+        }
+
+        assertEquals(25_000, store.size());
+        assertTrue(store.findByAccessToken("token-0").isEmpty());
+        IssuedGrant found = store.findByAccessToken("token-49999").orElseThrow();
+        assertEquals("id-49999", found.getId());
+        assertEquals(now.plusSeconds(600), found.getExpiresAt());
+    }
+
+    @Test
+    void valuesOnlyExpiredGrantsUsedAreNoLongerInterned() {
+        CompactIssuedGrantStore store = new CompactIssuedGrantStore();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        store.save(grant("kept", "kept-token", null, now.plusSeconds(600)));
+        for (int i = 0; i < 50_000; i++) {
+            store.save(new IssuedGrant("id-" + i, "client-" + i, "authorization_code", Set.of("scope-" + i),
+                    "token-" + i, null, now.minusSeconds(60), now.minusSeconds(5)));
+        }
+
+        assertTrue(store.internedValues() < 5_000, store.internedValues() + " values interned");
+        IssuedGrant kept = store.findByAccessToken("kept-token").orElseThrow();
+        assertEquals("client", kept.getClientId());
+        assertEquals(Set.of("openid", "email"), kept.getGrantedScopes());
+    }
+
+    private static IssuedGrant grant(String id, String accessToken, String refreshToken, Instant expiresAt) {
+        return new IssuedGrant(id, "client", "authorization_code", Set.of("openid", "email"),
+                accessToken, refreshToken, expiresAt.minusSeconds(60), expiresAt);
+    }
+}
@@ -0,0 +1,169 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.PendingGrant;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringGrantStoreTests {
+
+    @Test
+    void expiredAccessTokensAreNotFound() {
+        MutableClock clock = new MutableClock();
+        ExpiringIssuedGrantStore store = new ExpiringIssuedGrantStore(clock);
+        store.save(issued("short", clock.instant().plusSeconds(5)));
+        store.save(issued("long", clock.instant().plusSeconds(3600)));
+
+        assertTrue(store.findByAccessToken("short").isPresent());
+        clock.advance(Duration.ofSeconds(5));
+
+        assertTrue(store.findByAccessToken("short").isEmpty());
+        assertTrue(store.findByAccessToken("long").isPresent());
+        assertEquals(1, store.evictions());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void wheelEvictsIssuedGrantsThatAreNeverLookedUp() {
+        MutableClock clock = new MutableClock();
+        ExpiringIssuedGrantStore store = new ExpiringIssuedGrantStore(clock);
+        for (int i = 0; i < 1200; i++) {
+            store.save(issued("token-" + i, clock.instant().plusSeconds(1 + i % 60)));
+        }
+        store.save(issued("beyond-one-turn", clock.instant().plusSeconds(5000)));
+
+        clock.advance(Duration.ofSeconds(30));
+        store.expire();
+        assertEquals(601, store.size());
+
+        clock.advance(Duration.ofSeconds(4200));
+        store.expire();
+        assertEquals(1, store.size());
+        assertTrue(store.findByAccessToken("beyond-one-turn").isPresent());
+
+        clock.advance(Duration.ofSeconds(1000));
+        store.expire();
+        assertEquals(0, store.size());
+        assertEquals(1201, store.evictions());
+    }
+
+    @Test
+    void expiredCodesCannotBeConsumed() {
+        MutableClock clock = new MutableClock();
+        ExpiringPendingGrantStore store = new ExpiringPendingGrantStore(clock);
+        store.save(pending("stale", clock.instant().plusSeconds(600)));
+        store.save(pending("fresh", clock.instant().plusSeconds(600)));
+        store.save(pending("abandoned", clock.instant().plusSeconds(600)));
+
+        assertTrue(store.consume("fresh").isPresent());
+        assertTrue(store.consume("fresh").isEmpty());
+        clock.advance(Duration.ofSeconds(601));
+        assertTrue(store.consume("stale").isEmpty());
+        store.expire();
+
+        assertEquals(0, store.size());
+        assertEquals(2, store.evictions());
+    }
+
+    @Test
+    void noncesAreConsumedWithTheirCode() {
+        MutableClock clock = new MutableClock();
+        ExpiringPendingGrantStore store = new ExpiringPendingGrantStore(clock);
+        store.save(new NoncePendingGrant("code", "client", "subject", Set.of("openid"), "https://app/cb",
+                "nonce-xyz", clock.instant(), clock.instant().plusSeconds(600)));
+
+        PendingGrant consumed = store.consume("code").orElseThrow();
+
+        assertEquals("nonce-xyz", NoncePendingGrant.nonceOf(consumed));
+        assertTrue(store.consume("code").isEmpty());
+        assertNull(NoncePendingGrant.nonceOf(pending("plain", clock.instant().plusSeconds(600))));
+    }
+
+    @Test
+    void abandonedCodesAndNoncesDoNotAccumulate() {
+        MutableClock clock = new MutableClock();
+        ExpiringPendingGrantStore store = new ExpiringPendingGrantStore(clock);
+        int perMinute = 50_000;
+        for (int minute = 0; minute < 20; minute++) {
+            Instant now = clock.instant();
+            for (int i = 0; i < perMinute; i++) {
+                store.save(new NoncePendingGrant("code-" + minute + "-" + i, "client", "subject", Set.of("openid"),
+                        "https://app/cb", "nonce-" + i, now, now.plus(Duration.ofMinutes(10))));
+            }
+            clock.advance(Duration.ofMinutes(1));
+            store.expire();
+            // at most ten minutes' worth of abandoned codes, each with its nonce, are ever held
+            assertTrue(store.size() <= 10 * perMinute, "size " + store.size() + " after minute " + minute);
+        }
+
+        clock.advance(Duration.ofMinutes(10));
+        store.expire();
+        assertEquals(0, store.size());
+        assertEquals(20L * perMinute, store.evictions());
+    }
+
+    private static IssuedGrant issued(String accessToken, Instant expiresAt) {
+        return new IssuedGrant("id-" + accessToken, "client", "client_credentials", Set.of("openid"),
+                accessToken, null, expiresAt.minusSeconds(3600), expiresAt);
+    }
+
+    private static PendingGrant pending(String code, Instant expiresAt) {
+        return new PendingGrant(code, "client", "subject", Set.of("openid"), "https://app/cb",
+                null, null, expiresAt.minusSeconds(600), expiresAt);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
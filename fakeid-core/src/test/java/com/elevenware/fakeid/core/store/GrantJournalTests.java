@@ -0,0 +1,116 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.PendingGrant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GrantJournalTests {
+
+    private static final Duration HOURLY = Duration.ofHours(1);
+
+    @Test
+    void outstandingGrantsSurviveARestart(@TempDir Path tmp) throws Exception {
+        Instant now = Instant.now();
+        try (JournaledPendingGrantStore pending = new JournaledPendingGrantStore(
+                     new ExpiringPendingGrantStore(), tmp.resolve("pending.journal"), HOURLY);
+             JournaledIssuedGrantStore issued = new JournaledIssuedGrantStore(
+                     new ExpiringIssuedGrantStore(), tmp.resolve("issued.journal"), HOURLY)) {
+            pending.save(code("redeemed", now.plusSeconds(600)));
+            pending.save(code("outstanding", now.plusSeconds(600)));
+            assertTrue(pending.consume("redeemed").isPresent());
+            issued.save(new IssuedGrant("id", "client", "authorization_code", Set.of("openid"),
+                    "access-token", null, now, now.plusSeconds(3600)));
+        }
+
+        try (JournaledPendingGrantStore pending = new JournaledPendingGrantStore(
+                     new ExpiringPendingGrantStore(), tmp.resolve("pending.journal"), HOURLY);
+             JournaledIssuedGrantStore issued = new JournaledIssuedGrantStore(
+                     new ExpiringIssuedGrantStore(), tmp.resolve("issued.journal"), HOURLY)) {
+            assertTrue(pending.consume("redeemed").isEmpty());
+            PendingGrant outstanding = pending.consume("outstanding").orElseThrow();
+            assertEquals("nonce-outstanding", NoncePendingGrant.nonceOf(outstanding));
+            assertEquals(Set.of("openid"), issued.findByAccessToken("access-token").orElseThrow().getGrantedScopes());
+        }
+    }
+
+    @Test
+    void expiredGrantsAreNotReplayed(@TempDir Path tmp) throws Exception {
+        Instant now = Instant.now();
+        Path journal = tmp.resolve("issued.journal");
+        try (JournaledIssuedGrantStore issued = new JournaledIssuedGrantStore(new ExpiringIssuedGrantStore(), journal, HOURLY)) {
+            for (int i = 0; i < 100; i++) {
+                issued.save(new IssuedGrant("id", "client", "client_credentials", Set.of(),
+                        "expired-" + i, null, now.minusSeconds(3600), now.minusSeconds(1)));
+            }
+            issued.save(new IssuedGrant("id", "client", "client_credentials", Set.of(),
+                    "live", null, now, now.plusSeconds(3600)));
+        }
+
+        ExpiringIssuedGrantStore replayed = new ExpiringIssuedGrantStore();
+        try (JournaledIssuedGrantStore issued = new JournaledIssuedGrantStore(replayed, journal, HOURLY)) {
+            assertEquals(1, replayed.size());
+            assertTrue(issued.findByAccessToken("live").isPresent());
+        }
+    }
+
+    @Test
+    void compactionDropsRedeemedCodes(@TempDir Path tmp) throws Exception {
+        Instant now = Instant.now();
+        Path journal = tmp.resolve("pending.journal");
+        try (JournaledPendingGrantStore pending = new JournaledPendingGrantStore(
+                new ExpiringPendingGrantStore(), journal, HOURLY)) {
+            for (int i = 0; i < 1000; i++) {
+                pending.save(code("code-" + i, now.plusSeconds(600)));
+                pending.consume("code-" + i);
+            }
+            pending.save(code("kept", now.plusSeconds(600)));
+            assertTrue(pending.compactNow(Duration.ofSeconds(10)));
+
+            long size = Files.size(journal);
+            assertTrue(size > 0 && size < 1000, "journal is " + size + " bytes");
+        }
+        ExpiringPendingGrantStore replayed = new ExpiringPendingGrantStore();
+        try (JournaledPendingGrantStore reopened = new JournaledPendingGrantStore(replayed, journal, HOURLY)) {
+            assertEquals(1, replayed.size());
+            assertTrue(reopened.consume("kept").isPresent());
+        }
+    }
+
+    private static PendingGrant code(String code, Instant expiresAt) {
+        NoncePendingGrant grant = new NoncePendingGrant(code, "client", "subject", Set.of("openid"),
+                "https://app/cb", "nonce-" + code, expiresAt.minusSeconds(600), expiresAt);
+        grant.grant();
+        return grant;
+    }
+}
@@ -0,0 +1,240 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+import com.oidc4j.v2.lib.store.PendingGrant;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Behaviour every grant store behind Fake ID has to share. Extend it with factories for
+ * the stores under test, returning {@code null} from either to skip its checks; the kit
+ * closes whatever it is handed once each test is done. Times are compared to the second.
+ * Published in the fakeid-core test jar so stores supplied through a
+ * {@link StoreProvider} can be held to the same contract.
+ */
+public abstract class GrantStoreConformance {
+
+    private static final int THREADS = 8;
+
+    private final List<Object> opened = new ArrayList<>();
+
+    protected abstract IssuedGrantStore issuedGrantStore() throws Exception;
+
+    protected abstract PendingGrantStore pendingGrantStore() throws Exception;
+
+    @AfterEach
+    void closeStores() throws Exception {
+        for (Object store : opened) {
+            if (store instanceof AutoCloseable) {
+                ((AutoCloseable) store).close();
+            }
+        }
+        opened.clear();
+    }
+
+    @Test
+    void issuedGrantsRoundTrip() throws Exception {
+        IssuedGrantStore store = open(issuedGrantStore());
+        Instant now = now();
+        store.save(new IssuedGrant("grant-id", "client", "authorization_code", Set.of("openid", "profile"),
+                "access-token", "refresh-token", now, now.plusSeconds(3600)));
+
+        IssuedGrant found = store.findByAccessToken("access-token").orElseThrow();
+        assertEquals("grant-id", found.getId());
+        assertEquals("client", found.getClientId());
+        assertEquals("authorization_code", found.getGrantType());
+        assertEquals(Set.of("openid", "profile"), found.getGrantedScopes());
+        assertEquals("refresh-token", found.getRefreshToken());
+        assertEquals(now, found.getIssuedAt());
+        assertEquals(now.plusSeconds(3600), found.getExpiresAt());
+    }
+
+    @Test
+    void unknownAccessTokensAreNotFound() throws Exception {
+        IssuedGrantStore store = open(issuedGrantStore());
+        store.save(issued("access-token", now().plusSeconds(3600)));
+
+        assertTrue(store.findByAccessToken("other-token").isEmpty());
+    }
+
+    @Test
+    void expiredIssuedGrantsAreNotFound() throws Exception {
+        IssuedGrantStore store = open(issuedGrantStore());
+        store.save(issued("expired", now().minusSeconds(1)));
+
+        assertTrue(store.findByAccessToken("expired").isEmpty());
+    }
+
+    @Test
+    void pendingGrantsRoundTrip() throws Exception {
+        PendingGrantStore store = open(pendingGrantStore());
+        Instant now = now();
+        store.save(new PendingGrant("code", "client", "subject", Set.of("openid"), "https://app/cb",
+                null, null, now, now.plusSeconds(600)));
+
+        PendingGrant found = store.consume("code").orElseThrow();
+        assertEquals("client", found.getClientId());
+        assertEquals("subject", found.getSubject());
+        assertEquals(Set.of("openid"), found.getConsentedScopes());
+        assertEquals("https://app/cb", found.getRedirectUri());
+        assertEquals(now.plusSeconds(600), found.getExpiresAt());
+        assertNull(NoncePendingGrant.nonceOf(found));
+    }
+
+    @Test
+    void noncesSurviveTheStore() throws Exception {
+        PendingGrantStore store = open(pendingGrantStore());
+        Instant now = now();
+        store.save(new NoncePendingGrant("code", "client", "subject", Set.of("openid"), "https://app/cb",
+                "nonce", now, now.plusSeconds(600)));
+
+        assertEquals("nonce", NoncePendingGrant.nonceOf(store.consume("code").orElseThrow()));
+    }
+
+    @Test
+    void codesAreConsumedOnce() throws Exception {
+        PendingGrantStore store = open(pendingGrantStore());
+        store.save(pending("code", now().plusSeconds(600)));
+
+        assertTrue(store.consume("code").isPresent());
+        assertTrue(store.consume("code").isEmpty());
+        assertTrue(store.consume("unknown").isEmpty());
+    }
+
+    @Test
+    void expiredCodesAreNotConsumed() throws Exception {
+        PendingGrantStore store = open(pendingGrantStore());
+        store.save(pending("expired", now().minusSeconds(1)));
+
+        assertTrue(store.consume("expired").isEmpty());
+    }
+
+    @Test
+    void concurrentRedemptionsConsumeEachCodeOnce() throws Exception {
+        PendingGrantStore store = open(pendingGrantStore());
+        Instant expiresAt = now().plusSeconds(600);
+        int codes = 2_000;
+        for (int i = 0; i < codes; i++) {
+            store.save(pending("code-" + i, expiresAt));
+        }
+        AtomicInteger redeemed = new AtomicInteger();
+
+        race(thread -> {
+            for (int i = 0; i < codes; i++) {
+                if (store.consume("code-" + i).isPresent()) {
+                    redeemed.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(codes, redeemed.get());
+    }
+
+    @Test
+    void concurrentWritersAreAllVisible() throws Exception {
+        IssuedGrantStore store = open(issuedGrantStore());
+        Instant expiresAt = now().plusSeconds(3600);
+        int perThread = 500;
+
+        race(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                String token = "token-" + thread + "-" + i;
+                store.save(issued(token, expiresAt));
+                assertTrue(store.findByAccessToken(token).isPresent());
+            }
+        });
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < perThread; i++) {
+                assertEquals("id-token-" + thread + "-" + i,
+                        store.findByAccessToken("token-" + thread + "-" + i).orElseThrow().getId());
+            }
+        }
+    }
+
+    private <T> T open(T store) {
+        assumeTrue(store != null, "store not supplied");
+        opened.add(store);
+        return store;
+    }
+
+    private static void race(Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> running = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            running.add(executor.submit(() -> {
+                start.await();
+                worker.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : running) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static IssuedGrant issued(String accessToken, Instant expiresAt) {
+        return new IssuedGrant("id-" + accessToken, "client", "client_credentials", Set.of("openid"),
+                accessToken, null, expiresAt.minusSeconds(3600), expiresAt);
+    }
+
+    private static PendingGrant pending(String code, Instant expiresAt) {
+        return new PendingGrant(code, "client", "subject", Set.of("openid"), "https://app/cb",
+                null, null, expiresAt.minusSeconds(600), expiresAt);
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+}
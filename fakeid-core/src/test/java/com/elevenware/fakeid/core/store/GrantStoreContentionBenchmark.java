@@ -0,0 +1,136 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.oidc4j.v2.lib.store.InMemoryIssuedGrantStore;
+import com.oidc4j.v2.lib.store.InMemoryPendingGrantStore;
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+import com.oidc4j.v2.lib.store.PendingGrant;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of the grant stores under an authorization code flow load: save and
+ * redeem a code, save a grant and introspect it a few times. Run with
+ * {@code mvn test -P benchmark}.
+ */
+@Tag("Benchmark")
+class GrantStoreContentionBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final long RUN_MILLIS = 1000;
+    private static final int INTROSPECTIONS = 4;
+
+    @Test
+    void codeFlowThroughput() throws Exception {
+        Map<String, Supplier<Stores>> candidates = new LinkedHashMap<>();
+        candidates.put("InMemory", () -> new Stores(new InMemoryIssuedGrantStore(), new InMemoryPendingGrantStore()));
+        candidates.put("Expiring", () -> new Stores(new ExpiringIssuedGrantStore(), new ExpiringPendingGrantStore()));
+        candidates.put("Sharded", () -> new Stores(new ShardedIssuedGrantStore(), new ShardedPendingGrantStore()));
+
+        for (Supplier<Stores> candidate : candidates.values()) {
+            run(candidate.get(), Runtime.getRuntime().availableProcessors());
+        }
+        System.out.printf("%-8s %12s %12s %12s%n", "threads", "InMemory", "Expiring", "Sharded");
+        for (int threads : THREADS) {
+            StringBuilder row = new StringBuilder(String.format("%-8d", threads));
+            for (Supplier<Stores> candidate : candidates.values()) {
+                long flows = run(candidate.get(), threads);
+                assertTrue(flows > 0);
+                row.append(String.format(" %12d", flows * 1000 / RUN_MILLIS));
+            }
+            System.out.println(row + "  flows/s");
+        }
+    }
+
+    private static long run(Stores stores, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "t" + t + "-";
+            results.add(executor.submit(() -> {
+                start.await();
+                long deadline = System.currentTimeMillis() + RUN_MILLIS;
+                Instant now = Instant.now();
+                long flows = 0;
+                while (System.currentTimeMillis() < deadline) {
+                    String key = prefix + flows;
+                    stores.pending.save(new PendingGrant(key, "client", "subject", Set.of("openid"),
+                            "https://app/cb", null, null, now, now.plusSeconds(600)));
+                    stores.pending.consume(key);
+                    stores.issued.save(new IssuedGrant(key, "client", "authorization_code", Set.of("openid"),
+                            key, null, now, now.plusSeconds(3600)));
+                    for (int i = 0; i < INTROSPECTIONS; i++) {
+                        stores.issued.findByAccessToken(key);
+                    }
+                    flows++;
+                }
+                return flows;
+            }));
+        }
+        start.countDown();
+        long total = 0;
+        for (Future<Long> result : results) {
+            total += result.get();
+        }
+        executor.shutdown();
+        stores.close();
+        return total;
+    }
+
+    private static final class Stores {
+
+        final IssuedGrantStore issued;
+        final PendingGrantStore pending;
+
+        Stores(IssuedGrantStore issued, PendingGrantStore pending) {
+            this.issued = issued;
+            this.pending = pending;
+        }
+
+        void close() throws Exception {
+            if (issued instanceof AutoCloseable) {
+                ((AutoCloseable) issued).close();
+            }
+            if (pending instanceof AutoCloseable) {
+                ((AutoCloseable) pending).close();
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.oidc4j.v2.lib.store.InMemoryIssuedGrantStore;
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retained heap per issued grant, filled the way {@code FakeIdCore} fills a store: a
+ * UUID id, a 32 character token and a fresh scope set per grant. Run with
+ * {@code mvn test -P benchmark}.
+ */
+@Tag("Benchmark")
+class GrantStoreFootprintBenchmark {
+
+    private static final int GRANTS = 500_000;
+
+    @Test
+    void bytesPerGrant() {
+        Map<String, Supplier<IssuedGrantStore>> candidates = new LinkedHashMap<>();
+        candidates.put("InMemory", InMemoryIssuedGrantStore::new);
+        candidates.put("Sharded", ShardedIssuedGrantStore::new);
+        candidates.put("Compact", CompactIssuedGrantStore::new);
+
+        for (Map.Entry<String, Supplier<IssuedGrantStore>> candidate : candidates.entrySet()) {
+            long before = usedHeap();
+            IssuedGrantStore store = candidate.getValue().get();
+            fill(store);
+            long after = usedHeap();
+            assertTrue(store.findByAccessToken("missing").isEmpty());
+            System.out.printf("%-10s %6d bytes/grant%n", candidate.getKey(), (after - before) / GRANTS);
+        }
+    }
+
+    private static void fill(IssuedGrantStore store) {
+        Instant now = Instant.now();
+        List<String> scopes = List.of("openid", "profile", "email");
+        for (int i = 0; i < GRANTS; i++) {
+            store.save(new IssuedGrant(
+                    UUID.randomUUID().toString(),
+                    "client-" + (i % 16),
+                    "client_credentials",
+                    new HashSet<>(scopes),
+                    RandomStringUtils.randomAlphanumeric(32),
+                    null,
+                    now,
+                    now.plusSeconds(3600)));
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,47 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.oidc4j.v2.lib.store.IssuedGrantStore;
+import com.oidc4j.v2.lib.store.PendingGrantStore;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+class JournaledGrantStoreConformanceTests extends GrantStoreConformance {
+
+    @TempDir
+    Path tmp;
+
+    @Override
+    protected IssuedGrantStore issuedGrantStore() {
+        return new JournaledIssuedGrantStore(new ExpiringIssuedGrantStore(),
+                tmp.resolve("issued.journal"), Duration.ofMinutes(10));
+    }
+
+    @Override
+    protected PendingGrantStore pendingGrantStore() {
+        return new JournaledPendingGrantStore(new ExpiringPendingGrantStore(),
+                tmp.resolve("pending.journal"), Duration.ofMinutes(10));
+    }
+}
@@ -0,0 +1,149 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.elevenware.fakeid.core.error.InvalidRequestException;
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.PendingGrant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedGrantStoreTests {
+
+    @Test
+    void issuedGrantsAreVisibleThroughEveryMapping(@TempDir Path tmp) {
+        Path file = tmp.resolve("issued.db");
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        try (MappedIssuedGrantStore first = new MappedIssuedGrantStore(file, 1024);
+             MappedIssuedGrantStore second = new MappedIssuedGrantStore(file, 1024)) {
+            first.save(new IssuedGrant("id", "client", "client_credentials", Set.of("openid", "api"),
+                    "access-token", null, now, now.plusSeconds(3600)));
+
+            IssuedGrant found = second.findByAccessToken("access-token").orElseThrow();
+            assertEquals("client", found.getClientId());
+            assertEquals(Set.of("openid", "api"), found.getGrantedScopes());
+            assertEquals(now.plusSeconds(3600), found.getExpiresAt());
+            assertTrue(second.findByAccessToken("unknown").isEmpty());
+        }
+        try (MappedIssuedGrantStore reopened = new MappedIssuedGrantStore(file, 16)) {
+            assertTrue(reopened.findByAccessToken("access-token").isPresent());
+        }
+    }
+
+    @Test
+    void expiredGrantsAreNotReturnedAndTheirSlotsAreReused(@TempDir Path tmp) {
+        Instant now = Instant.now();
+        try (MappedIssuedGrantStore store = new MappedIssuedGrantStore(tmp.resolve("issued.db"), 4)) {
+            for (int i = 0; i < 4; i++) {
+                store.save(new IssuedGrant("id", "client", "client_credentials", Set.of(),
+                        "expired-" + i, null, now.minusSeconds(60), now.minusSeconds(1)));
+            }
+            assertTrue(store.findByAccessToken("expired-0").isEmpty());
+
+            for (int i = 0; i < 4; i++) {
+                store.save(new IssuedGrant("id", "client", "client_credentials", Set.of(),
+                        "live-" + i, null, now, now.plusSeconds(60)));
+            }
+            assertTrue(store.findByAccessToken("live-3").isPresent());
+            assertThrows(IllegalStateException.class, () -> store.save(new IssuedGrant(
+                    "id", "client", "client_credentials", Set.of(), "one-too-many", null, now, now.plusSeconds(60))));
+        }
+    }
+
+    @Test
+    void codesAreConsumedOnceAcrossMappings(@TempDir Path tmp) throws Exception {
+        Path file = tmp.resolve("pending.db");
+        int mappings = 8;
+        List<MappedPendingGrantStore> stores = new ArrayList<>();
+        for (int i = 0; i < mappings; i++) {
+            stores.add(new MappedPendingGrantStore(file, 4096));
+        }
+        Instant now = Instant.now();
+        for (int i = 0; i < 1000; i++) {
+            stores.get(i % mappings).save(new NoncePendingGrant("code-" + i, "client", "subject", Set.of("openid"),
+                    "https://app/cb", "nonce-" + i, now, now.plusSeconds(600)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(mappings);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> redeemed = new ArrayList<>();
+        for (MappedPendingGrantStore store : stores) {
+            redeemed.add(executor.submit(() -> {
+                start.await();
+                int count = 0;
+                for (int i = 0; i < 1000; i++) {
+                    PendingGrant grant = store.consume("code-" + i).orElse(null);
+                    if (grant != null) {
+                        assertEquals("nonce-" + i, NoncePendingGrant.nonceOf(grant));
+                        count++;
+                    }
+                }
+                return count;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> count : redeemed) {
+            total += count.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        stores.forEach(MappedPendingGrantStore::close);
+
+        assertEquals(1000, total);
+    }
+
+    @Test
+    void grantsTooLargeForASlotAreRejectedAsInvalidRequests(@TempDir Path tmp) {
+        Instant now = Instant.now();
+        try (MappedPendingGrantStore store = new MappedPendingGrantStore(tmp.resolve("pending.db"), 16)) {
+            PendingGrant grant = new NoncePendingGrant("code", "client", "subject", Set.of("openid"),
+                    "https://app/cb?" + "x".repeat(1000), "nonce", now, now.plusSeconds(600));
+
+            InvalidRequestException e = assertThrows(InvalidRequestException.class, () -> store.save(grant));
+            assertEquals("invalid_request", e.error());
+        }
+    }
+
+    @Test
+    void foreignFilesAreRejected(@TempDir Path tmp) throws Exception {
+        Path file = Files.writeString(tmp.resolve("not-a-store.db"), "some other file entirely");
+
+        assertThrows(IllegalStateException.class, () -> new MappedPendingGrantStore(file, 16));
+    }
+}
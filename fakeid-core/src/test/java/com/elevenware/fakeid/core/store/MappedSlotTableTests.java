@@ -0,0 +1,98 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedSlotTableTests {
+
+    private static final byte[] VALUE = "value".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void missesStopAtTheFurthestDisplacementOnceEverySlotHasBeenUsed(@TempDir Path tmp) {
+        try (MappedSlotTable table = new MappedSlotTable(tmp.resolve("table.db"), 256, 128)) {
+            long expiresAt = System.currentTimeMillis() + 60_000;
+            for (int i = 0; i < 4096; i++) {
+                table.put("code-" + i, expiresAt, VALUE);
+                assertArrayEquals(VALUE, table.take("code-" + i));
+            }
+
+            // with every record consumed, nothing needs to be placed away from home
+            assertEquals(0, table.maxDisplacement());
+            assertNull(table.get("unknown"));
+        }
+    }
+
+    @Test
+    void displacementIsRecordedForCollidingKeys(@TempDir Path tmp) {
+        try (MappedSlotTable table = new MappedSlotTable(tmp.resolve("table.db"), 64, 128)) {
+            long expiresAt = System.currentTimeMillis() + 60_000;
+            for (int i = 0; i < 48; i++) {
+                table.put("token-" + i, expiresAt, VALUE);
+            }
+
+            assertTrue(table.maxDisplacement() > 0);
+            for (int i = 0; i < 48; i++) {
+                assertArrayEquals(VALUE, table.get("token-" + i));
+            }
+        }
+    }
+
+    @Test
+    void recordsLargerThanASlotDontFit(@TempDir Path tmp) {
+        try (MappedSlotTable table = new MappedSlotTable(tmp.resolve("table.db"), 64, 128)) {
+            assertTrue(table.fits("token", VALUE));
+            assertFalse(table.fits("token", new byte[128]));
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void aSlotLeftBusyByADeadWriterDoesNotHangLookups(@TempDir Path tmp) throws Exception {
+        Path file = tmp.resolve("table.db");
+        try (MappedSlotTable table = new MappedSlotTable(file, 1, 128)) {
+            table.put("token", System.currentTimeMillis() + 60_000, VALUE);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer control = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+                channel.read(control, 4096);
+                long busy = (control.flip().getLong() & ~3L) | 1;
+                channel.write(ByteBuffer.allocate(8).order(ByteOrder.nativeOrder()).putLong(busy).flip(), 4096);
+            }
+
+            assertNull(table.get("token"));
+        }
+    }
+}
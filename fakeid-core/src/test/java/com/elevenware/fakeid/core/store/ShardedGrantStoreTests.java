@@ -0,0 +1,140 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.oidc4j.v2.lib.store.IssuedGrant;
+import com.oidc4j.v2.lib.store.PendingGrant;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedGrantStoreTests {
+
+    @Test
+    void issuedGrantsAreFoundUntilTheyExpire() {
+        ShardedIssuedGrantStore store = new ShardedIssuedGrantStore(4);
+        Instant now = Instant.now();
+        IssuedGrant live = issued("live", now.plusSeconds(3600));
+        store.save(live);
+        store.save(issued("expired", now.minusSeconds(1)));
+
+        assertSame(live, store.findByAccessToken("live").orElseThrow());
+        assertTrue(store.findByAccessToken("expired").isEmpty());
+        assertTrue(store.findByAccessToken("unknown").isEmpty());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void savingAGrantAgainReplacesIt() {
+        ShardedIssuedGrantStore store = new ShardedIssuedGrantStore(1);
+        Instant now = Instant.now();
+        for (int i = 0; i < 100; i++) {
+            store.save(issued("token", now.plusSeconds(3600 + i)));
+        }
+
+        assertEquals(now.plusSeconds(3699), store.findByAccessToken("token").orElseThrow().getExpiresAt());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void shardsGrowAndDropRedeemedCodes() {
+        ShardedPendingGrantStore store = new ShardedPendingGrantStore(2);
+        Instant expiresAt = Instant.now().plusSeconds(600);
+        for (int i = 0; i < 100_000; i++) {
+            store.save(pending("code-" + i, expiresAt));
+        }
+        assertEquals(100_000, store.size());
+        for (int i = 0; i < 100_000; i += 2) {
+            assertTrue(store.consume("code-" + i).isPresent());
+        }
+        for (int i = 0; i < 100_000; i++) {
+            store.save(pending("more-" + i, expiresAt));
+        }
+
+        assertEquals(150_000, store.size());
+        assertTrue(store.consume("code-1").isPresent());
+        assertTrue(store.consume("code-2").isEmpty());
+        assertTrue(store.consume("more-99999").isPresent());
+    }
+
+    @Test
+    void eachCodeIsConsumedExactlyOnceUnderContention() throws Exception {
+        ShardedPendingGrantStore store = new ShardedPendingGrantStore(8);
+        Instant expiresAt = Instant.now().plusSeconds(600);
+        int codes = 20_000;
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> redeemed = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            redeemed.add(executor.submit(() -> {
+                start.await();
+                int count = 0;
+                for (int i = 0; i < codes; i++) {
+                    if (i % threads == offset) {
+                        store.save(pending("code-" + i, expiresAt));
+                    }
+                    if (store.consume("code-" + ((i + offset) % codes)).isPresent()) {
+                        count++;
+                    }
+                }
+                return count;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> count : redeemed) {
+            total += count.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        for (int i = 0; i < codes; i++) {
+            if (store.consume("code-" + i).isPresent()) {
+                total++;
+            }
+        }
+
+        assertEquals(codes, total);
+    }
+
+    private static IssuedGrant issued(String accessToken, Instant expiresAt) {
+        return new IssuedGrant("id-" + accessToken, "client", "client_credentials", Set.of("openid"),
+                accessToken, null, expiresAt.minusSeconds(3600), expiresAt);
+    }
+
+    private static PendingGrant pending(String code, Instant expiresAt) {
+        return new PendingGrant(code, "client", "subject", Set.of("openid"), "https://app/cb",
+                null, null, expiresAt.minusSeconds(600), expiresAt);
+    }
+}
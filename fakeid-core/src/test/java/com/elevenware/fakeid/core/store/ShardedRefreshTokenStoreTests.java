@@ -0,0 +1,109 @@
+package com.elevenware.fakeid.core.store;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedRefreshTokenStoreTests {
+
+    @Test
+    void grantsAreFoundUntilTheyExpireOrTheirFamilyIsRevoked() {
+        ShardedRefreshTokenStore store = new ShardedRefreshTokenStore(4);
+        Instant now = Instant.now();
+        store.save(grant("live", "family-a", now.plusSeconds(60)));
+        store.save(grant("sibling", "family-a", now.plusSeconds(60)));
+        store.save(grant("other", "family-b", now.plusSeconds(60)));
+        store.save(grant("expired", "family-b", now.minusSeconds(1)));
+
+        assertTrue(store.find("live").isPresent());
+        assertTrue(store.find("expired").isEmpty());
+
+        store.revokeFamily("family-a", now.plusSeconds(60));
+
+        assertTrue(store.find("live").isEmpty());
+        assertTrue(store.find("sibling").isEmpty());
+        assertTrue(store.find("other").isPresent());
+    }
+
+    @Test
+    void usedTokensAreStillFoundSoReuseCanBeSpotted() {
+        ShardedRefreshTokenStore store = new ShardedRefreshTokenStore(4);
+        store.save(grant("token", "family", Instant.now().plusSeconds(60)));
+
+        assertTrue(store.markUsed("token"));
+        assertFalse(store.markUsed("token"));
+        assertTrue(store.find("token").isPresent());
+        assertFalse(store.markUsed("unknown"));
+    }
+
+    @Test
+    void eachTokenIsMarkedUsedOnceUnderContention() throws Exception {
+        ShardedRefreshTokenStore store = new ShardedRefreshTokenStore(8);
+        int tokens = 5_000;
+        for (int i = 0; i < tokens; i++) {
+            store.save(grant("token-" + i, "family-" + i, Instant.now().plusSeconds(600)));
+        }
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> wins = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            wins.add(executor.submit(() -> {
+                start.await();
+                int count = 0;
+                for (int i = 0; i < tokens; i++) {
+                    if (store.markUsed("token-" + i)) {
+                        count++;
+                    }
+                }
+                return count;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> count : wins) {
+            total += count.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(tokens, total);
+    }
+
+    private static RefreshGrant grant(String token, String family, Instant expiresAt) {
+        return new RefreshGrant(token, family, "client", "subject", Set.of("openid"),
+                expiresAt.minusSeconds(120), expiresAt.minusSeconds(60), expiresAt);
+    }
+}
@@ -0,0 +1,104 @@
+package com.elevenware.fakeid.core.users;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.elevenware.fakeid.ConfigurationException;
+import com.elevenware.fakeid.core.dto.AuthorizeRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileUserDirectoryTests {
+
+    @Test
+    void jsonLinesUsersAreFoundBySubjectAndLoginHint(@TempDir Path tmp) throws Exception {
+        Path file = Files.writeString(tmp.resolve("users.jsonl"), """
+                {"sub":"alice","email":"alice@example.com","groups":["admin"]}
+
+                {"sub":"bob","preferred_username":"bobby","email_verified":true}
+                """);
+
+        FileUserDirectory directory = FileUserDirectory.load(file);
+
+        assertEquals(2, directory.size());
+        assertEquals("alice", directory.get(0).get("sub"));
+        assertEquals(List.of("admin"), directory.findBySubject("alice").orElseThrow().get("groups"));
+        assertEquals("alice", directory.findByLoginHint("alice@example.com").orElseThrow().get("sub"));
+        assertEquals("bob", directory.findByLoginHint("bobby").orElseThrow().get("sub"));
+        assertEquals("bob", directory.findByLoginHint("bob").orElseThrow().get("sub"));
+        assertTrue(directory.findByLoginHint("carol").isEmpty());
+    }
+
+    @Test
+    void csvUsersTakeTheirClaimNamesFromTheHeader(@TempDir Path tmp) throws Exception {
+        Path file = Files.writeString(tmp.resolve("users.csv"), """
+                sub,name,email,email_verified
+                alice,"Smith, Alice",alice@example.com,true
+                bob,"Bob ""B"" Jones",,false
+                """);
+
+        FileUserDirectory directory = FileUserDirectory.load(file);
+
+        assertEquals(2, directory.size());
+        assertEquals("Smith, Alice", directory.findBySubject("alice").orElseThrow().get("name"));
+        assertEquals(Boolean.TRUE, directory.findBySubject("alice").orElseThrow().get("email_verified"));
+        assertEquals("Bob \"B\" Jones", directory.findBySubject("bob").orElseThrow().get("name"));
+        assertFalse(directory.findBySubject("bob").orElseThrow().containsKey("email"));
+    }
+
+    @Test
+    void usersWithoutASubOrWithADuplicateSubAreRejected(@TempDir Path tmp) throws Exception {
+        Path noSub = Files.writeString(tmp.resolve("no-sub.jsonl"), "{\"name\":\"nobody\"}\n");
+        Path duplicate = Files.writeString(tmp.resolve("duplicate.csv"), "sub\nalice\nalice\n");
+
+        assertThrows(ConfigurationException.class, () -> FileUserDirectory.load(noSub));
+        assertThrows(ConfigurationException.class, () -> FileUserDirectory.load(duplicate));
+    }
+
+    @Test
+    void selectionPoliciesPickAUserInRange() {
+        AtomicLong counter = new AtomicLong();
+        AuthorizeRequest request = new AuthorizeRequest(
+                "web", "https://app/cb", "code", Set.of("openid"), "state-1", null);
+
+        assertEquals(0, UserSelection.ROUND_ROBIN.pick(request, 3, counter));
+        assertEquals(1, UserSelection.ROUND_ROBIN.pick(request, 3, counter));
+        assertEquals(2, UserSelection.ROUND_ROBIN.pick(request, 3, counter));
+        assertEquals(0, UserSelection.ROUND_ROBIN.pick(request, 3, counter));
+
+        int hashed = UserSelection.HASH.pick(request, 5, counter);
+        assertTrue(hashed >= 0 && hashed < 5);
+        assertEquals(hashed, UserSelection.HASH.pick(request, 5, counter));
+
+        assertEquals(UserSelection.HASH, UserSelection.parse("hash"));
+        assertThrows(ConfigurationException.class, () -> UserSelection.parse("random"));
+    }
+}
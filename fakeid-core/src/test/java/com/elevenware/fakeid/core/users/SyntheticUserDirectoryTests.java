@@ -0,0 +1,94 @@
+package com.elevenware.fakeid.core.users;
+
+/*-
+ * #%L
+ * Fake ID
+ * %%
+ * Copyright (C) 2025 George McIntosh
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyntheticUserDirectoryTests {
+
+    @Test
+    void theSameSeedGivesTheSameUsers() {
+        SyntheticUserDirectory first = new SyntheticUserDirectory(42, 10_000_000);
+        SyntheticUserDirectory second = new SyntheticUserDirectory(42, 10_000_000, 1);
+
+        for (int index : new int[]{0, 1, 77, 9_999_999}) {
+            assertEquals(first.get(index), second.get(index));
+        }
+        assertEquals("user-77", first.get(77).get("sub"));
+        assertNotEquals(first.get(77), new SyntheticUserDirectory(43, 10_000_000).get(77));
+    }
+
+    @Test
+    void usersHaveNamesEmailsAndGroups() {
+        Map<String, Object> user = new SyntheticUserDirectory(7, 100).get(12);
+
+        String given = (String) user.get("given_name");
+        String family = (String) user.get("family_name");
+        assertEquals(given + " " + family, user.get("name"));
+        assertEquals(given.toLowerCase() + "." + family.toLowerCase() + ".12@example.com", user.get("email"));
+        assertTrue(user.get("groups") instanceof List);
+    }
+
+    @Test
+    void recentlyUsedUsersAreCached() {
+        SyntheticUserDirectory directory = new SyntheticUserDirectory(1, 1000, 4);
+        Map<String, Object> user = directory.get(5);
+
+        assertSame(user, directory.get(5));
+        directory.get(9);
+        assertNotSame(user, directory.get(5));
+        assertEquals(user, directory.get(5));
+    }
+
+    @Test
+    void usersAreFoundBySubjectEmailOrUsername() {
+        SyntheticUserDirectory directory = new SyntheticUserDirectory(1, 1000, 4);
+        Map<String, Object> user = directory.get(500);
+
+        assertEquals(user, directory.findBySubject("user-500").orElseThrow());
+        assertEquals(user, directory.findByLoginHint("user-500").orElseThrow());
+        assertEquals(user, directory.findByLoginHint((String) user.get("email")).orElseThrow());
+        assertEquals(user, directory.findByLoginHint((String) user.get("preferred_username")).orElseThrow());
+    }
+
+    @Test
+    void subjectsOutsideThePopulationAreNotFound() {
+        SyntheticUserDirectory directory = new SyntheticUserDirectory(1, 1000);
+
+        assertTrue(directory.findBySubject("user-1000").isEmpty());
+        assertTrue(directory.findBySubject("user-0500").isEmpty());
+        assertTrue(directory.findBySubject("user-99999999999").isEmpty());
+        assertTrue(directory.findBySubject("user-").isEmpty());
+        assertTrue(directory.findBySubject("alice").isEmpty());
+        assertTrue(directory.findByLoginHint("someone.else.5@example.com").isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> directory.get(1000));
+    }
+}
@@ -24,18 +24,21 @@ import com.elevenware.fakeid.core.error.OidcException;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import io.javalin.Javalin;
+import io.javalin.http.ServiceUnavailableResponse;
 import io.javalin.json.JavalinJackson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class FakeIdApplication {
 
     private static final Logger LOG = LoggerFactory.getLogger(FakeIdApplication.class);
     private final Configuration configuration;
     private Javalin server;
+    private CompletableFuture<FakeIdProvider> provider;
 
     public FakeIdApplication(Configuration configuration) {
         this.configuration = configuration;
@@ -47,7 +50,11 @@ public class FakeIdApplication {
         jsonMapper.getMapper()
                 .setSerializationInclusion(JsonInclude.Include.NON_NULL)
                 .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
-        var provider = new FakeIdProvider(configuration);
+        // with async key generation the provider, which needs the signing key, is built
+        // while the server binds; requests before it is ready get a 503
+        provider = configuration.isAsyncKeyGeneration()
+                ? CompletableFuture.supplyAsync(() -> new FakeIdProvider(configuration))
+                : CompletableFuture.completedFuture(new FakeIdProvider(configuration));
 
         server = Javalin.create(c -> {
             c.jsonMapper(jsonMapper);
@@ -61,19 +68,34 @@ public class FakeIdApplication {
                     .json(Map.of(
                             "error", e.error(),
                             "error_description", e.errorDescription())));
-            c.routes.get("/.well-known/openid-configuration", provider::getDiscoveryDocument);
-            c.routes.get("/jwks", provider::jwksEndpoint);
-            c.routes.get("/authorize", provider::authorizationEndpoint);
-            c.routes.post("/token", provider::tokenEndpoint);
-            c.routes.post("/token/introspect", provider::introspectionEndpoint);
-            c.routes.get("/userinfo", provider::userInfoEndpoint);
+            c.routes.get("/.well-known/openid-configuration", ctx -> provider().getDiscoveryDocument(ctx));
+            c.routes.get("/jwks", ctx -> provider().jwksEndpoint(ctx));
+            c.routes.get("/authorize", ctx -> provider().authorizationEndpoint(ctx));
+            c.routes.post("/token", ctx -> provider().tokenEndpoint(ctx));
+            c.routes.post("/token/introspect", ctx -> provider().introspectionEndpoint(ctx));
+            c.routes.get("/userinfo", ctx -> provider().userInfoEndpoint(ctx));
         }).start(configuration.getPort());
+        provider.whenComplete((ready, e) -> {
+            if (e != null) {
+                LOG.error("Failed to start the provider, stopping Fake ID", e);
+                stop();
+            }
+        });
         LOG.info("Fake ID started");
         return this;
     }
 
+    private FakeIdProvider provider() {
+        FakeIdProvider ready = provider.getNow(null);
+        if (ready == null) {
+            throw new ServiceUnavailableResponse("Fake ID is still generating its signing key");
+        }
+        return ready;
+    }
+
     public void stop() {
         Optional.ofNullable(server).ifPresent(Javalin::stop);
+        Optional.ofNullable(provider).ifPresent(p -> p.thenAccept(FakeIdProvider::close));
     }
 
     public int port() {
@@ -27,6 +27,7 @@ import com.elevenware.fakeid.core.dto.IntrospectRequest;
 import com.elevenware.fakeid.core.dto.IntrospectResponse;
 import com.elevenware.fakeid.core.dto.TokenRequest;
 import com.elevenware.fakeid.core.dto.TokenResponse;
+import com.elevenware.fakeid.core.dto.UserInfoResponse;
 import io.javalin.http.Context;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -34,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -49,7 +51,7 @@ public class FakeIdProvider {
     }
 
     public void getDiscoveryDocument(@NotNull Context context) {
-        context.json(core.discovery());
+        context.json(core.discoveryMetadata());
     }
 
     public void jwksEndpoint(@NotNull Context context) {
@@ -57,7 +59,18 @@ public class FakeIdProvider {
     }
 
     public void userInfoEndpoint(@NotNull Context context) {
-        context.json(core.userInfo());
+        // the response is serialized once per user and scope set, so write its bytes
+        // straight out rather than through the JSON mapper
+        String authHeader = context.header("Authorization");
+        UserInfoResponse response = authHeader != null && authHeader.regionMatches(true, 0, "Bearer ", 0, 7)
+                ? core.userInfoResponse(authHeader.substring(7).trim())
+                : core.userInfoResponse();
+        context.header("ETag", response.etag());
+        if (response.matches(context.header("If-None-Match"))) {
+            context.status(304);
+            return;
+        }
+        context.contentType("application/json").result(response.body());
     }
 
     public void tokenEndpoint(@NotNull Context context) {
@@ -87,7 +100,8 @@ public class FakeIdProvider {
                 authCode,
                 scope,
                 credentials == null ? null : credentials.clientId,
-                credentials == null ? null : credentials.clientSecret);
+                credentials == null ? null : credentials.clientSecret,
+                context.formParam("refresh_token"));
 
         TokenResponse response = core.token(tokenRequest);
         context.json(response);
@@ -105,9 +119,10 @@ public class FakeIdProvider {
                 params.get("client_id").get(0),
                 params.get("redirect_uri").get(0),
                 params.get("response_type").get(0),
-                Set.copyOf(params.get("scope")),
+                splitScopes(params.get("scope")),
                 hasValidValue(params.get("state")) ? params.get("state").get(0) : null,
-                params.containsKey("nonce") ? params.get("nonce").get(0) : null);
+                params.containsKey("nonce") ? params.get("nonce").get(0) : null,
+                hasValidValue(params.get("login_hint")) ? params.get("login_hint").get(0) : null);
 
         AuthorizeResponse response = core.authorize(request);
         String redirect = response.toRedirectLocation();
@@ -122,6 +137,10 @@ public class FakeIdProvider {
         context.json(response);
     }
 
+    public void close() {
+        core.close();
+    }
+
     public void savePendingAuthCode(String code, String clientId, String subject,
                                     Set<String> scopes, String redirectUri, String nonce) {
         core.savePendingAuthCode(code, clientId, subject, scopes, redirectUri, nonce);
@@ -159,6 +178,18 @@ public class FakeIdProvider {
         }
     }
 
+    private static Set<String> splitScopes(List<String> values) {
+        Set<String> scopes = new LinkedHashSet<>();
+        for (String value : values) {
+            for (String scope : value.split(" ")) {
+                if (!scope.isEmpty()) {
+                    scopes.add(scope);
+                }
+            }
+        }
+        return scopes;
+    }
+
     private boolean hasValidValue(List<String> values) {
         return values != null && !values.isEmpty() && values.get(0) != null && !values.get(0).isEmpty();
     }
@@ -20,11 +20,13 @@ package com.elevenware.fakeid;
  * #L%
  */
 
-import com.oidc4j.v2.lib.model.DiscoveryDocument;
 import io.javalin.http.Context;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
@@ -38,12 +40,18 @@ public class ProviderTests {
 
         Context ctx = mock(Context.class);
 
-        ArgumentCaptor<DiscoveryDocument> jsonCaptor = ArgumentCaptor.forClass(DiscoveryDocument.class);
+        ArgumentCaptor<Map<String, Object>> jsonCaptor = mapCaptor();
         provider.getDiscoveryDocument(ctx);
         verify(ctx, times(1)).json(jsonCaptor.capture());
-        DiscoveryDocument doc = jsonCaptor.getValue();
+        Map<String, Object> doc = jsonCaptor.getValue();
+
+        assertEquals(doc.get("issuer"), configuration.getIssuer());
+        assertEquals(List.of(configuration.getSigningAlgorithm().getName()), doc.get("id_token_signing_alg_values_supported"));
+    }
 
-        assertEquals(doc.getIssuer(), configuration.getIssuer());
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Map<String, Object>> mapCaptor() {
+        return ArgumentCaptor.forClass((Class<Map<String, Object>>) (Class<?>) Map.class);
     }
 
 }